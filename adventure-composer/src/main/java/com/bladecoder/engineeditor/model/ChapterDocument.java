@@ -31,6 +31,7 @@ import com.bladecoder.engine.anim.AnimationDesc;
 import com.bladecoder.engine.anim.AtlasAnimationDesc;
 import com.bladecoder.engine.anim.SpineAnimationDesc;
 import com.bladecoder.engine.anim.Tween;
+import com.bladecoder.engine.loader.ChapterBinaryLoader;
 import com.bladecoder.engine.loader.XMLConstants;
 import com.bladecoder.engine.model.ActorRenderer;
 import com.bladecoder.engine.model.AtlasRenderer;
@@ -44,6 +45,7 @@ import com.bladecoder.engine.model.SpriteActor.DepthType;
 import com.bladecoder.engine.polygonalpathfinder.PolygonalNavGraph;
 import com.bladecoder.engine.spine.SpineRenderer;
 import com.bladecoder.engine.util.EngineLogger;
+import com.bladecoder.engineeditor.utils.EditorLogger;
 
 public class ChapterDocument extends BaseDocument {
 
@@ -66,6 +68,37 @@ public class ChapterDocument extends BaseDocument {
 		setFilename(getId() + XMLConstants.CHAPTER_EXT);
 	}
 
+	@Override
+	public void save() throws TransformerException, FileNotFoundException {
+		if (!isModified())
+			return;
+
+		super.save();
+
+		deleteCompiledChapters();
+	}
+
+	/**
+	 * The compiled chapters are outdated when the XML is modified. They are
+	 * generated again when packaging the game.
+	 */
+	private void deleteCompiledChapters() {
+		String prefix = getFilename().substring(0, getFilename().length() - XMLConstants.CHAPTER_EXT.length()) + ".";
+		File[] files = new File(modelPath).listFiles();
+
+		if (files == null)
+			return;
+
+		for (File f : files) {
+			String name = f.getName();
+
+			if (name.startsWith(prefix) && name.endsWith(ChapterBinaryLoader.BINARY_CHAPTER_EXT)) {
+				EditorLogger.debug("Deleting outdated compiled chapter: " + name);
+				f.delete();
+			}
+		}
+	}
+
 	public Element getActor(Element scn, String id) {
 		NodeList actorsNL = getActors(scn);
 		for (int j = 0; j < actorsNL.getLength(); j++) {
@@ -34,11 +34,14 @@ import com.bladecoder.engineeditor.ui.components.CellRenderer;
 import com.bladecoder.engineeditor.ui.components.EditElementDialog;
 import com.bladecoder.engineeditor.ui.components.ElementList;
 import com.bladecoder.engineeditor.undo.UndoOp;
+import com.bladecoder.engineeditor.utils.EditorLogger;
 import com.bladecoder.engineeditor.utils.I18NUtils;
+import com.bladecoder.engineeditor.utils.Sprite3DBaker;
 
 public class ActorList extends ElementList {
 
 	private ImageButton playerBtn;
+	private ImageButton bakeBtn;
 
 	public ActorList(Skin skin) {
 		super(skin, true);
@@ -47,6 +50,10 @@ public class ActorList extends ElementList {
 		toolbar.addToolBarButton(playerBtn, "ic_check", "Set player", "Set player");
 		playerBtn.setDisabled(true);
 
+		bakeBtn = new ImageButton(skin);
+		toolbar.addToolBarButton(bakeBtn, "ic_3d", "Bake 3D animations", "Bake the 3D animations into an atlas");
+		bakeBtn.setDisabled(true);
+
 		list.addListener(new ChangeListener() {
 
 			@Override
@@ -63,6 +70,8 @@ public class ActorList extends ElementList {
 
 				toolbar.disableEdit(pos == -1);
 				playerBtn.setDisabled(pos == -1);
+				bakeBtn.setDisabled(pos == -1 || !list.getItems().get(pos).getAttribute(XMLConstants.TYPE_ATTR)
+						.equals(XMLConstants.S3D_VALUE));
 			}
 		});
 
@@ -73,6 +82,13 @@ public class ActorList extends ElementList {
 			}
 		});
 
+		bakeBtn.addListener(new ChangeListener() {
+			@Override
+			public void changed(ChangeEvent event, Actor actor) {
+				bake3D();
+			}
+		});
+
 		list.setCellRenderer(listCellRenderer);
 
 		Ctx.project.addPropertyChangeListener(Project.NOTIFY_ACTOR_SELECTED, new PropertyChangeListener() {
@@ -181,6 +197,30 @@ public class ActorList extends ElementList {
 		}
 	}
 
+	/**
+	 * Bakes the 3D animations of the selected actor. Needs the GL context, so
+	 * it runs in the GL thread.
+	 */
+	private void bake3D() {
+		int pos = list.getSelectedIndex();
+
+		if (pos == -1)
+			return;
+
+		Element e = list.getItems().get(pos);
+		String msg;
+
+		try {
+			String atlas = Sprite3DBaker.bake((ChapterDocument) doc, parent, e, Sprite3DBaker.DEFAULT_FPS);
+			msg = "3D animations baked in the '" + atlas + "' atlas";
+		} catch (Exception ex) {
+			EditorLogger.error("Error baking 3D animations", ex);
+			msg = "Error baking 3D animations\n\n" + ex.getMessage();
+		}
+
+		Ctx.msg.show(getStage(), msg, 3);
+	}
+
 	// -------------------------------------------------------------------------
 	// ListCellRenderer
 	// -------------------------------------------------------------------------
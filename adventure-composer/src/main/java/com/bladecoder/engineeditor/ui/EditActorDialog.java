@@ -42,11 +42,11 @@ public class EditActorDialog extends EditElementDialog {
 			"Image actors show image files"
 			};
 
-	private InputPanel[] inputs = new InputPanel[14];
+	private InputPanel[] inputs = new InputPanel[16];
 	InputPanel typePanel;
 
 	String attrs[] = { XMLConstants.TYPE_ATTR, XMLConstants.ID_ATTR, XMLConstants.LAYER_ATTR, XMLConstants.DESC_ATTR, XMLConstants.STATE_ATTR, XMLConstants.INTERACTION_ATTR, XMLConstants.VISIBLE_ATTR,
-			XMLConstants.WALKING_SPEED_ATTR, XMLConstants.DEPTH_TYPE_ATTR, XMLConstants.SPRITE_SIZE_ATTR, XMLConstants.CAMERA_NAME_ATTR, XMLConstants.FOV_ATTR, XMLConstants.SCALE_ATTR, XMLConstants.ZINDEX_ATTR };
+			XMLConstants.WALKING_SPEED_ATTR, XMLConstants.DEPTH_TYPE_ATTR, XMLConstants.SPRITE_SIZE_ATTR, XMLConstants.CAMERA_NAME_ATTR, XMLConstants.FOV_ATTR, XMLConstants.SCALE_ATTR, XMLConstants.ZINDEX_ATTR, XMLConstants.REDRAW_FPS_ATTR, XMLConstants.SHADOW_ATTR };
 
 	@SuppressWarnings("unchecked")
 	public EditActorDialog(Skin skin, BaseDocument doc, Element parent,
@@ -96,6 +96,15 @@ public class EditActorDialog extends EditElementDialog {
 		inputs[13] = InputPanelFactory.createInputPanel(skin, "zIndex",
 				"The order to draw.", Param.Type.FLOAT, false, "0",
 				null);
+		
+		inputs[14] = InputPanelFactory.createInputPanel(skin, "Redraw FPS",
+				"Max. redraws per second of the 3d sprite. 0 redraws every frame.", Param.Type.FLOAT, false, "0",
+				null);
+		
+		inputs[15] = InputPanelFactory.createInputPanel(skin, "Shadow",
+				"Dynamic shadow map, static blob texture or no shadow", new String[] {
+						XMLConstants.SHADOW_DYNAMIC_VALUE, XMLConstants.SHADOW_BLOB_VALUE,
+						XMLConstants.SHADOW_NONE_VALUE }, false);
 
 		setInfo(TYPES_INFO[0]);
 
@@ -137,12 +146,16 @@ public class EditActorDialog extends EditElementDialog {
 		setVisible(inputs[10],false);
 		setVisible(inputs[11],false);
 		setVisible(inputs[12],false);
+		setVisible(inputs[14],false);
+		setVisible(inputs[15],false);
 
 		if (ChapterDocument.ACTOR_TYPES[i]
 				.equals(XMLConstants.S3D_VALUE)) {
 			setVisible(inputs[9],true);
 			setVisible(inputs[10],true);
 			setVisible(inputs[11],true);
+			setVisible(inputs[14],true);
+			setVisible(inputs[15],true);
 		}
 		
 		if (!ChapterDocument.ACTOR_TYPES[i]
@@ -17,6 +17,7 @@ package com.bladecoder.engineeditor.ui;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import org.apache.commons.io.FileUtils;
@@ -33,6 +34,8 @@ import com.bladecoder.engineeditor.ui.components.EditDialog;
 import com.bladecoder.engineeditor.ui.components.FileInputPanel;
 import com.bladecoder.engineeditor.ui.components.InputPanel;
 import com.bladecoder.engineeditor.ui.components.InputPanelFactory;
+import com.bladecoder.engineeditor.utils.AtlasPagesReport;
+import com.bladecoder.engineeditor.utils.EditorLogger;
 import com.bladecoder.engineeditor.utils.RunProccess;
 
 public class PackageDialog extends EditDialog {
@@ -185,6 +188,27 @@ public class PackageDialog extends EditDialog {
 		String projectName = Ctx.project.getProjectDir().getName();
 		String versionParam = "-Ppassed_version=" + version.getText() + " ";
 		
+		// Precompiled chapters to avoid parsing the XML when the game starts
+		for (String res : Ctx.project.getResolutions()) {
+			if (!RunProccess.compileChapters(Ctx.project.getProjectDir(), res))
+				return "Error compiling chapters for resolution " + res;
+		}
+		
+		String pagesWarning = null;
+		
+		try {
+			ArrayList<String> report = AtlasPagesReport.create();
+			
+			for (String l : report)
+				EditorLogger.error("TOO MANY ATLAS PAGES: " + l);
+			
+			if (!report.isEmpty())
+				pagesWarning = "\n\n" + report.size() + " scenes use more than " + AtlasPagesReport.MAX_PAGES
+						+ " atlas pages. See the log.";
+		} catch (Exception e) {
+			EditorLogger.error("Error creating the atlas pages report", e);
+		}
+		
 		if (arch.getText().equals("desktop")) {			
 			String jar = Ctx.project.getProjectDir().getAbsolutePath() +
 					"/desktop/build/libs/" + projectName + "-desktop-" + version.getText() + ".jar";
@@ -240,6 +264,9 @@ public class PackageDialog extends EditDialog {
 				msg = "Error Generating package" ;
 			}			
 		}
+		
+		if (msg != null && pagesWarning != null)
+			msg += pagesWarning;
 
 		return msg;
 	}
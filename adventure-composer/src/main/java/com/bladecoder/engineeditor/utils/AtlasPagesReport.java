@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engineeditor.utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.bladecoder.engine.loader.XMLConstants;
+import com.bladecoder.engineeditor.Ctx;
+import com.bladecoder.engineeditor.model.ChapterDocument;
+import com.bladecoder.engineeditor.model.Project;
+
+/**
+ * Reports the scenes whose actors use too many atlas pages. Every page used
+ * in a scene is, at least, one more texture switch (and render call) per
+ * frame.
+ * 
+ * @author rgarcia
+ */
+public class AtlasPagesReport {
+	/** Scenes using more pages than this are reported */
+	public static final int MAX_PAGES = 4;
+
+	/**
+	 * @return The report lines or an empty list if all the scenes are under
+	 *         MAX_PAGES.
+	 */
+	public static ArrayList<String> create() throws Exception {
+		ArrayList<String> report = new ArrayList<String>();
+
+		for (String res : Ctx.project.getResolutions()) {
+			HashMap<String, Integer> pagesCache = new HashMap<String, Integer>();
+
+			for (String chapterId : Ctx.project.getWorld().getChapters()) {
+				ChapterDocument chapter = Ctx.project.getWorld().loadChapter(chapterId);
+				NodeList scenes = chapter.getScenes();
+
+				for (int i = 0; i < scenes.getLength(); i++) {
+					Element scn = (Element) scenes.item(i);
+					HashSet<String> atlases = new HashSet<String>();
+
+					if (!scn.getAttribute(XMLConstants.BACKGROUND_ATLAS_ATTR).isEmpty())
+						atlases.add(scn.getAttribute(XMLConstants.BACKGROUND_ATLAS_ATTR));
+
+					NodeList actors = chapter.getActors(scn);
+
+					for (int j = 0; j < actors.getLength(); j++) {
+						Element a = (Element) actors.item(j);
+
+						if (!chapter.getType(a).equals(XMLConstants.ATLAS_VALUE))
+							continue;
+
+						NodeList anims = chapter.getAnimations(a);
+
+						for (int k = 0; k < anims.getLength(); k++) {
+							String source = ((Element) anims.item(k)).getAttribute(XMLConstants.SOURCE_ATTR);
+
+							if (!source.isEmpty())
+								atlases.add(source);
+						}
+					}
+
+					int pages = 0;
+
+					for (String atlas : atlases)
+						pages += getPages(res, atlas, pagesCache);
+
+					if (pages > MAX_PAGES) {
+						report.add(chapterId + "/" + chapter.getId(scn) + " (" + res + "): " + pages + " atlas pages "
+								+ atlases);
+					}
+				}
+			}
+		}
+
+		return report;
+	}
+
+	private static int getPages(String res, String atlas, HashMap<String, Integer> cache) {
+		Integer pages = cache.get(atlas);
+
+		if (pages == null) {
+			File dir = new File(Ctx.project.getProjectPath() + Project.ATLASES_PATH + "/" + res);
+			File f = new File(dir, atlas + ".atlas");
+
+			if (f.exists()) {
+				TextureAtlasData data = new TextureAtlasData(new FileHandle(f), new FileHandle(dir), false);
+				pages = data.getPages().size;
+			} else {
+				EditorLogger.error("Atlas not found: " + f.getAbsolutePath());
+				pages = 0;
+			}
+
+			cache.put(atlas, pages);
+		}
+
+		return pages;
+	}
+}
@@ -97,6 +97,8 @@ public class DesktopLauncher extends BladeEngine {
 					i++;
 					EngineAssetManager.createEditInstance(args[i], 1920, 1080);
 				}			
+			} else if (s.equals("-compile-chapters")) {
+				setCompileChapters();
 			} else if (s.equals("-w")) {
 				fullscreen = false;
 			} else if (s.equals("-l")) {
@@ -127,7 +129,8 @@ public class DesktopLauncher extends BladeEngine {
 			    "-res width\tForce the resolution width\n" +
 			    "-l game_state\tLoad the previusly saved game state\n" + 
 			    "-adv-dir game_folder\tSets the game folder\n" + 
-			    "-r\tRun the game from the begining\n"
+			    "-r\tRun the game from the begining\n" +
+			    "-compile-chapters\tCompiles the chapters for the selected resolution and exits\n"
 				);
 		
 		System.exit(0);
@@ -143,6 +146,16 @@ public class DesktopLauncher extends BladeEngine {
 		
 		super.create();
 	}
+	
+	@Override
+	public void dispose() {
+		super.dispose();
+		
+		// The editor reads the exit status of the compilation. LwjglApplication
+		// always exits with -1 after disposing.
+		if (isCompileChapters())
+			System.exit(isCompileChaptersFailed() ? 1 : 0);
+	}
 
 	private void hideCursor() {
 		Cursor emptyCursor;
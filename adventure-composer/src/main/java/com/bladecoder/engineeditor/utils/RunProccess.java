@@ -88,6 +88,31 @@ public class RunProccess {
 		return true;
 	}
 
+	/**
+	 * Compiles the chapters of the project for the given resolution. Waits
+	 * until the compilation ends.
+	 */
+	public static boolean compileChapters(File prjFolder, String resolution) throws IOException {
+		List<String> args = new ArrayList<String>();
+		args.add("-w");
+		args.add("-adv-dir");
+		args.add(prjFolder.getAbsolutePath());
+		args.add("-res");
+		args.add(resolution);
+		args.add("-compile-chapters");
+
+		List<String> cp = new ArrayList<String>();
+		cp.add(System.getProperty("java.class.path"));
+
+		Process p = runJavaProccess("com.bladecoder.engineeditor.utils.DesktopLauncher", cp, args);
+
+		try {
+			return p.waitFor() == 0;
+		} catch (InterruptedException e) {
+			return false;
+		}
+	}
+
 	public static void runAnt(String buildFile, String target, String distDir,
 			String projectDir, Properties props) throws IOException {
 		String packageFilesDir = "package-files/";
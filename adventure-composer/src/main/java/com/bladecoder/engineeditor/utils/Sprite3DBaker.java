@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engineeditor.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.math.Vector3;
+import com.bladecoder.engine.actions.Param;
+import com.bladecoder.engine.anim.AnimationDesc;
+import com.bladecoder.engine.loader.XMLConstants;
+import com.bladecoder.engine.model.BaseActor;
+import com.bladecoder.engine.model.Sprite3DRenderer;
+import com.bladecoder.engine.model.SpriteActor;
+import com.bladecoder.engineeditor.Ctx;
+import com.bladecoder.engineeditor.model.ChapterDocument;
+import com.bladecoder.engineeditor.model.Project;
+
+/**
+ * Bakes the animations of a 3D actor into an atlas for every resolution.
+ * 
+ * The frames are rendered in an offscreen buffer, so only a GL context is
+ * needed. Animations without direction are baked for every direction. The
+ * actor keeps its 3D definition and the engine uses the atlas when it exists.
+ * 
+ * @author rgarcia
+ */
+public class Sprite3DBaker {
+	public static final int DEFAULT_FPS = 15;
+
+	/**
+	 * @return The name of the generated atlas.
+	 */
+	public static String bake(ChapterDocument doc, Element scn, Element e, int fps) throws IOException {
+		if (!doc.getType(e).equals(XMLConstants.S3D_VALUE))
+			throw new IOException("Not a 3D actor: " + doc.getId(e));
+
+		BaseActor a = doc.getEngineActor(e);
+		Sprite3DRenderer r = (Sprite3DRenderer) ((SpriteActor) a).getRenderer();
+
+		setCameraParams(r, e);
+
+		String atlas = "baked_" + doc.getId(scn) + "_" + doc.getId(e);
+		File tmpDir = DesktopUtils.createTempDirectory();
+
+		try {
+			NodeList anims = doc.getAnimations(e);
+
+			for (int i = 0; i < anims.getLength(); i++) {
+				Element faElement = (Element) anims.item(i);
+				String id = faElement.getAttribute(XMLConstants.ID_ATTR);
+
+				float duration = r.getAnimationDuration(id);
+
+				bakeAnimation(r, id, duration, fps, tmpDir);
+
+				if (id.indexOf('.') == -1) {
+					for (String dir : AnimationDesc.DIRECTIONS)
+						bakeAnimation(r, id + "." + dir, duration, fps, tmpDir);
+				}
+
+				faElement.setAttribute(XMLConstants.BAKED_DURATION_ATTR, String.format(Locale.US, "%.3f", duration));
+			}
+
+			for (String res : Ctx.project.getResolutions()) {
+				ImageUtils.createAtlas(tmpDir.getAbsolutePath(),
+						Ctx.project.getProjectPath() + Project.ATLASES_PATH + "/" + res, atlas,
+						Float.parseFloat(res), TextureFilter.Linear, TextureFilter.Linear);
+			}
+		} finally {
+			r.dispose();
+			DesktopUtils.removeDir(tmpDir.getAbsolutePath());
+		}
+
+		doc.setRootAttr(e, XMLConstants.BAKED_ATLAS_ATTR, atlas);
+
+		return atlas;
+	}
+
+	private static void bakeAnimation(Sprite3DRenderer r, String id, float duration, int fps, File dir)
+			throws IOException {
+		int frames = Math.max(1, Math.round(duration * fps));
+
+		for (int i = 0; i < frames; i++) {
+			Pixmap p = r.bakeFrame(id, duration * i / frames);
+
+			if (p == null)
+				throw new IOException("Error baking animation: " + id);
+
+			// The packer uses the '_N' suffix as the frame index
+			PixmapIO.writePNG(new FileHandle(new File(dir, id + "_" + i + ".png")), p);
+			p.dispose();
+		}
+	}
+
+	private static void setCameraParams(Sprite3DRenderer r, Element e) {
+		if (!e.getAttribute(XMLConstants.CAM_POS_ATTR).isEmpty()) {
+			Vector3 v = Param.parseVector3(e.getAttribute(XMLConstants.CAM_POS_ATTR));
+			r.setCameraPos(v.x, v.y, v.z);
+		}
+
+		if (!e.getAttribute(XMLConstants.CAM_ROT_ATTR).isEmpty()) {
+			Vector3 v = Param.parseVector3(e.getAttribute(XMLConstants.CAM_ROT_ATTR));
+			r.setCameraRot(v.x, v.y, v.z);
+		}
+
+		if (!e.getAttribute(XMLConstants.FOV_ATTR).isEmpty())
+			r.setCameraFOV(Float.parseFloat(e.getAttribute(XMLConstants.FOV_ATTR)));
+
+		if (!e.getAttribute(XMLConstants.CAMERA_NAME_ATTR).isEmpty())
+			r.setCameraName(e.getAttribute(XMLConstants.CAMERA_NAME_ATTR));
+	}
+}
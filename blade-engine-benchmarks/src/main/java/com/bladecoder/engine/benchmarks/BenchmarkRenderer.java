@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.benchmarks;
+
+import java.util.HashMap;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonValue;
+import com.bladecoder.engine.actions.ActionCallback;
+import com.bladecoder.engine.anim.AnimationDesc;
+import com.bladecoder.engine.model.ActorRenderer;
+
+/**
+ * Renderer without assets. Used to measure the engine logic cost without the
+ * texture loading and drawing.
+ */
+public class BenchmarkRenderer implements ActorRenderer {
+	private final HashMap<String, AnimationDesc> animations = new HashMap<String, AnimationDesc>();
+
+	private final float width;
+	private final float height;
+
+	public BenchmarkRenderer(float width, float height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public void update(float delta) {
+	}
+
+	@Override
+	public void draw(SpriteBatch batch, float x, float y, float scale) {
+	}
+
+	@Override
+	public float getWidth() {
+		return width;
+	}
+
+	@Override
+	public float getHeight() {
+		return height;
+	}
+
+	@Override
+	public AnimationDesc getCurrentAnimation() {
+		return null;
+	}
+
+	@Override
+	public String getCurrentAnimationId() {
+		return null;
+	}
+
+	@Override
+	public void lookat(float x, float y, Vector2 pf) {
+	}
+
+	@Override
+	public void lookat(String direction) {
+	}
+
+	@Override
+	public void stand() {
+	}
+
+	@Override
+	public void walk(Vector2 p0, Vector2 pf) {
+	}
+
+	@Override
+	public void startAnimation(String id, int repeatType, int count, ActionCallback cb) {
+	}
+
+	@Override
+	public void addAnimation(AnimationDesc fa) {
+		animations.put(fa.id, fa);
+	}
+
+	@Override
+	public void setInitAnimation(String fa) {
+	}
+
+	@Override
+	public String getInitAnimation() {
+		return null;
+	}
+
+	@Override
+	public String[] getInternalAnimations(AnimationDesc anim) {
+		return new String[0];
+	}
+
+	@Override
+	public HashMap<String, AnimationDesc> getAnimations() {
+		return animations;
+	}
+
+	@Override
+	public void updateBboxFromRenderer(Polygon bbox) {
+		float[] verts = bbox.getVertices();
+
+		if (verts.length != 8)
+			verts = new float[8];
+
+		verts[0] = -width / 2;
+		verts[1] = 0f;
+		verts[2] = -width / 2;
+		verts[3] = height;
+		verts[4] = width / 2;
+		verts[5] = height;
+		verts[6] = width / 2;
+		verts[7] = 0f;
+
+		bbox.setVertices(verts);
+		bbox.dirty();
+	}
+
+	@Override
+	public void loadAssets() {
+	}
+
+	@Override
+	public void retrieveAssets() {
+	}
+
+	@Override
+	public void dispose() {
+	}
+
+	@Override
+	public void write(Json json) {
+	}
+
+	@Override
+	public void read(Json json, JsonValue jsonData) {
+	}
+}
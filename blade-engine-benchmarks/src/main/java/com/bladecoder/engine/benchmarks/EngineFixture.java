@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.math.Interpolation;
+import com.badlogic.gdx.math.Polygon;
+import com.bladecoder.engine.anim.Tween;
+import com.bladecoder.engine.assets.EngineAssetManager;
+import com.bladecoder.engine.model.Scene;
+import com.bladecoder.engine.model.SpriteActor;
+import com.bladecoder.engine.model.SpriteActor.DepthType;
+import com.bladecoder.engine.model.World;
+import com.bladecoder.engine.model.World.AssetState;
+
+/**
+ * Creates a headless libGDX environment and a synthetic chapter with the
+ * specified number of actors.
+ * 
+ * Half of the actors are hotspots ('no_renderer' actors) defined in the
+ * chapter XML. The other half are sprite actors moving around the scene with
+ * a renderer without assets. One of them is the player, so the 'enter/exit'
+ * checks of the hotspots are exercised every frame.
+ */
+public class EngineFixture {
+	public static final int WORLD_WIDTH = 1920;
+	public static final int WORLD_HEIGHT = 1080;
+
+	public static final String CHAPTER = "benchmark";
+	public static final String SCENE = "benchmark_scene";
+
+	/** The time of one frame at 60fps */
+	public static final float FRAME_DELTA = 1f / 60f;
+
+	private static HeadlessApplication app;
+
+	private File baseFolder;
+
+	/**
+	 * Starts the headless backend. A no op GL20 is used because the headless
+	 * backend doesn't provide one and the engine creates batches and shaders.
+	 */
+	public static synchronized void initGdx() {
+		if (app != null)
+			return;
+
+		HeadlessApplicationConfiguration cfg = new HeadlessApplicationConfiguration();
+		cfg.renderInterval = -1;
+
+		app = new HeadlessApplication(new ApplicationAdapter() {
+		}, cfg);
+
+		Gdx.gl = Gdx.gl20 = createNoOpGL20();
+	}
+
+	public void setUp(int numActors) throws IOException {
+		initGdx();
+
+		baseFolder = File.createTempFile("blade-benchmark", "");
+		baseFolder.delete();
+
+		FileHandle base = new FileHandle(baseFolder);
+		base.child(EngineAssetManager.ATLASES_DIR + "1").mkdirs();
+		base.child(EngineAssetManager.MODEL_DIR + CHAPTER + ".chapter").writeString(createChapterXML(numActors),
+				false, "UTF-8");
+
+		EngineAssetManager.createEditInstance(baseFolder.getAbsolutePath(), WORLD_WIDTH, WORLD_HEIGHT);
+
+		World w = World.getInstance();
+		w.setWidth(WORLD_WIDTH);
+		w.setHeight(WORLD_HEIGHT);
+		w.loadXMLChapter(CHAPTER);
+
+		Scene s = w.getCurrentScene();
+		Random rnd = new Random(numActors);
+		int numSprites = numActors - numActors / 2;
+
+		for (int i = 0; i < numSprites; i++) {
+			SpriteActor a = new SpriteActor();
+			a.setId("sprite" + i);
+			a.setLayer(i % 2 == 0 ? "dynamic" : "foreground");
+			a.setRenderer(new BenchmarkRenderer(100, 200));
+			a.setDepthType(DepthType.NONE);
+			a.setBbox(new Polygon());
+			a.setBboxFromRenderer(true);
+			a.setPosition(rnd.nextFloat() * WORLD_WIDTH, rnd.nextFloat() * WORLD_HEIGHT / 2);
+
+			s.addActor(a);
+
+			if (i == 0) {
+				s.setPlayer(a);
+				s.setCameraFollowActor(a);
+			}
+		}
+
+		s.orderLayersByZIndex();
+
+		// retrieve assets and run the 'init' verb
+		while (w.getAssetState() != AssetState.LOADED)
+			w.update(0);
+
+		// the tweens must be created after retrieving the assets
+		for (int i = 0; i < numSprites; i++) {
+			SpriteActor a = (SpriteActor) s.getActor("sprite" + i, false);
+			a.startPosAnimation(Tween.PINGPONG, Tween.INFINITY, 2f + rnd.nextFloat() * 8f,
+					rnd.nextFloat() * WORLD_WIDTH, rnd.nextFloat() * WORLD_HEIGHT / 2, Interpolation.linear, null);
+		}
+	}
+
+	public void tearDown() {
+		World.getInstance().dispose();
+
+		if (baseFolder != null) {
+			new FileHandle(baseFolder).deleteDirectory();
+			baseFolder = null;
+		}
+	}
+
+	private static String createChapterXML(int numActors) {
+		StringBuilder sb = new StringBuilder();
+		Random rnd = new Random(numActors * 31);
+		int numHotspots = numActors / 2;
+
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		sb.append("<chapter init_scene=\"").append(SCENE).append("\">\n");
+		sb.append("<scene id=\"").append(SCENE).append("\">\n");
+		sb.append("<layer id=\"foreground\" visible=\"true\" dynamic=\"true\"/>\n");
+		sb.append("<layer id=\"dynamic\" visible=\"true\" dynamic=\"true\"/>\n");
+		sb.append("<layer id=\"background\" visible=\"true\" dynamic=\"false\"/>\n");
+		sb.append("<walk_zone polygon=\"0,0,0,").append(WORLD_HEIGHT / 2).append(',').append(WORLD_WIDTH).append(',')
+				.append(WORLD_HEIGHT / 2).append(',').append(WORLD_WIDTH).append(",0\" pos=\"0,0\"/>\n");
+
+		for (int i = 0; i < numHotspots; i++) {
+			int x = rnd.nextInt(WORLD_WIDTH);
+			int y = rnd.nextInt(WORLD_HEIGHT);
+
+			sb.append("<actor type=\"no_renderer\" id=\"hotspot").append(i).append("\" layer=\"background\"");
+			sb.append(" bbox=\"0,0,0,150,150,150,150,0\" pos=\"").append(x).append(',').append(y).append("\">\n");
+			sb.append("<verb id=\"enter\"/>\n<verb id=\"exit\"/>\n");
+			sb.append("</actor>\n");
+		}
+
+		sb.append("</scene>\n");
+		sb.append("</chapter>\n");
+
+		return sb.toString();
+	}
+
+	private static GL20 createNoOpGL20() {
+		return (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[] { GL20.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+
+						// shaders and programs always compile and link
+						if ((name.equals("glGetShaderiv") || name.equals("glGetProgramiv"))
+								&& args[2] instanceof IntBuffer) {
+							int pname = (Integer) args[1];
+
+							if (pname == GL20.GL_COMPILE_STATUS || pname == GL20.GL_LINK_STATUS)
+								((IntBuffer) args[2]).put(0, 1);
+
+							return null;
+						}
+
+						// GL_NO_ERROR
+						if (name.equals("glGetError"))
+							return 0;
+
+						Class<?> r = method.getReturnType();
+
+						if (r == String.class)
+							return "";
+						else if (r == boolean.class)
+							return false;
+						else if (r == int.class) // valid handles for created objects
+							return 1;
+						else if (r == float.class)
+							return 0f;
+
+						return null;
+					}
+				});
+	}
+}
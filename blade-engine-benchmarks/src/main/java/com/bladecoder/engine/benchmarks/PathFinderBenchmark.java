@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.math.Vector2;
+import com.bladecoder.engine.pathfinder.AStarPathFinder;
+import com.bladecoder.engine.pathfinder.IndexedAStarPathFinder;
+import com.bladecoder.engine.pathfinder.NavContext;
+import com.bladecoder.engine.pathfinder.NavGraph;
+import com.bladecoder.engine.pathfinder.PathFinder;
+import com.bladecoder.engine.polygonalpathfinder.ManhattanDistance;
+import com.bladecoder.engine.polygonalpathfinder.NavNodePolygonal;
+import com.bladecoder.engine.polygonalpathfinder.NavPathPolygonal;
+
+/**
+ * {@link AStarPathFinder} against {@link IndexedAStarPathFinder} over a random
+ * graph with the same cost and heuristic than the PolygonalNavGraph.
+ * 
+ * Before measuring, the setup checks that both path finders give the same
+ * paths for {@value #CHECKED_QUERIES} random queries and fails if not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PathFinderBenchmark {
+	public static final int CHECKED_QUERIES = 2000;
+
+	private static final int QUERIES = 256;
+
+	/** Nodes closer than this distance are neighbors */
+	private static final float NEIGHBOR_DISTANCE = 250;
+
+	@Param({ "50", "200", "800" })
+	public int nodes;
+
+	private final ArrayList<NavNodePolygonal> graphNodes = new ArrayList<NavNodePolygonal>();
+	private final int[][] queries = new int[QUERIES][2];
+	private int query = 0;
+
+	private PathFinder astar;
+	private PathFinder indexedAStar;
+	private final NavPathPolygonal path = new NavPathPolygonal();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random r = new Random(nodes);
+
+		createGraph(r);
+
+		for (int[] q : queries) {
+			q[0] = r.nextInt(nodes);
+			q[1] = r.nextInt(nodes);
+		}
+
+		checkPaths(r);
+	}
+
+	@Benchmark
+	public boolean astar() {
+		return find(astar);
+	}
+
+	@Benchmark
+	public boolean indexedAStar() {
+		return find(indexedAStar);
+	}
+
+	private boolean find(PathFinder f) {
+		int[] q = queries[query];
+		query = (query + 1) % QUERIES;
+
+		return f.findPath(null, graphNodes.get(q[0]), graphNodes.get(q[1]), path);
+	}
+
+	/**
+	 * Random nodes in a 1920x1080 area connected to the nearby nodes.
+	 */
+	private void createGraph(Random r) {
+		graphNodes.clear();
+
+		for (int i = 0; i < nodes; i++) {
+			NavNodePolygonal n = new NavNodePolygonal(r.nextFloat() * EngineFixture.WORLD_WIDTH, r.nextFloat()
+					* EngineFixture.WORLD_HEIGHT);
+			n.index = i;
+			graphNodes.add(n);
+		}
+
+		for (int i = 0; i < nodes; i++) {
+			NavNodePolygonal a = graphNodes.get(i);
+
+			for (int j = i + 1; j < nodes; j++) {
+				NavNodePolygonal b = graphNodes.get(j);
+
+				if (Vector2.dst(a.x, a.y, b.x, b.y) < NEIGHBOR_DISTANCE) {
+					a.neighbors.add(b);
+					b.neighbors.add(a);
+				}
+			}
+		}
+
+		NavGraph<NavNodePolygonal> graph = new NavGraph<NavNodePolygonal>() {
+			@Override
+			public boolean blocked(NavContext<NavNodePolygonal> context, NavNodePolygonal targetNode) {
+				return false;
+			}
+
+			@Override
+			public float getCost(NavContext<NavNodePolygonal> context, NavNodePolygonal targetNode) {
+				return 1;
+			}
+		};
+
+		astar = new AStarPathFinder(graph, 100, new ManhattanDistance());
+		indexedAStar = new IndexedAStarPathFinder<NavNodePolygonal>(graph, 100, new ManhattanDistance());
+	}
+
+	/**
+	 * Throws an exception if the path finders give different paths.
+	 */
+	private void checkPaths(Random r) {
+		NavPathPolygonal expected = new NavPathPolygonal();
+		NavPathPolygonal result = new NavPathPolygonal();
+
+		for (int i = 0; i < CHECKED_QUERIES; i++) {
+			NavNodePolygonal start = graphNodes.get(r.nextInt(nodes));
+			NavNodePolygonal target = graphNodes.get(r.nextInt(nodes));
+
+			expected.clear();
+			result.clear();
+
+			boolean expectedFound = astar.findPath(null, start, target, expected);
+			boolean found = indexedAStar.findPath(null, start, target, result);
+
+			if (expectedFound != found || !expected.getPath().equals(result.getPath()))
+				throw new IllegalStateException("Different paths from " + start.index + " to " + target.index
+						+ ": " + expected.getPath() + " / " + result.getPath());
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bladecoder.engine.model.Scene;
+import com.bladecoder.engine.model.World;
+
+/**
+ * Only the {@link Scene#update(float)} frame: layer sorting, actor updates and camera.
+ * 
+ * Every invocation is one frame at 60fps. Run with '-prof gc' to get the
+ * allocation rate per frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SceneUpdateBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int actors;
+
+	private final EngineFixture fixture = new EngineFixture();
+	private Scene scene;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		fixture.setUp(actors);
+		scene = World.getInstance().getCurrentScene();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		fixture.tearDown();
+	}
+
+	@Benchmark
+	public void frame() {
+		scene.update(EngineFixture.FRAME_DELTA);
+	}
+}
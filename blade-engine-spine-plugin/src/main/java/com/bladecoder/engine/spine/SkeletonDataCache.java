@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.spine;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.bladecoder.engine.assets.EngineAssetManager;
+import com.bladecoder.engine.util.EngineLogger;
+import com.esotericsoftware.spine.SkeletonBinary;
+import com.esotericsoftware.spine.SkeletonData;
+
+/**
+ * Process wide cache of the parsed skeletons. The SkeletonData is immutable
+ * and can be shared by all the actors that use the same skeleton, so it is
+ * parsed once and reference counted by (source, atlas, scale).
+ * 
+ * The atlas must be loaded by the caller before acquiring the skeleton and it
+ * must be kept loaded while the skeleton is referenced.
+ * 
+ * @author rgarcia
+ */
+public class SkeletonDataCache {
+	private static final SkeletonDataCache instance = new SkeletonDataCache();
+
+	private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+	static class Entry {
+		SkeletonData data;
+		int refCounter;
+	}
+
+	public static SkeletonDataCache getInstance() {
+		return instance;
+	}
+
+	private SkeletonDataCache() {
+	}
+
+	/**
+	 * Adds a reference to the skeleton. It is parsed if it is not referenced by
+	 * anybody else.
+	 * 
+	 * @param source
+	 *            the skeleton name
+	 * @param atlas
+	 *            the atlas name. If null, the source name is used.
+	 */
+	public SkeletonData acquire(String source, String atlas) {
+		String atlasName = atlas == null ? source : atlas;
+		float scale = EngineAssetManager.getInstance().getScale();
+		String key = source + "|" + atlasName + "|" + scale;
+
+		Entry e = entries.get(key);
+
+		if (e == null) {
+			TextureAtlas atlasTex = EngineAssetManager.getInstance().getTextureAtlas(atlasName);
+
+			SkeletonBinary skel = new SkeletonBinary(atlasTex);
+			skel.setScale(scale);
+
+			e = new Entry();
+			e.data = skel.readSkeletonData(EngineAssetManager.getInstance().getSpine(source));
+			entries.put(key, e);
+
+			EngineLogger.debug("SKELETON PARSED: " + key);
+		}
+
+		e.refCounter++;
+
+		return e.data;
+	}
+
+	/**
+	 * Releases a reference. The skeleton is removed from the cache when it is
+	 * not referenced.
+	 */
+	public void release(SkeletonData data) {
+		Iterator<Entry> it = entries.values().iterator();
+
+		while (it.hasNext()) {
+			Entry e = it.next();
+
+			if (e.data == data) {
+				e.refCounter--;
+
+				if (e.refCounter <= 0)
+					it.remove();
+
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of references of the skeleton.
+	 */
+	public int getRefCount(String source, String atlas) {
+		Entry e = entries.get(source + "|" + (atlas == null ? source : atlas) + "|"
+				+ EngineAssetManager.getInstance().getScale());
+
+		return e == null ? 0 : e.refCounter;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.spine;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.bladecoder.engine.model.SceneCamera;
+import com.bladecoder.engine.model.World;
+import com.bladecoder.engine.util.Config;
+
+/**
+ * Level of detail for the Spine actors. Decides how often the skeleton pose
+ * is updated depending on the actor visibility and its size on screen:
+ * 
+ * <ul>
+ * <li>FULL: the pose is updated every frame.</li>
+ * <li>REDUCED: the actor is small on screen. The pose is updated at
+ * REDUCED_FPS.</li>
+ * <li>CULLED: the actor is hidden or outside the camera. The world transform
+ * is not updated and the animation is applied at CULLED_FPS only to fire the
+ * events and callbacks.</li>
+ * </ul>
+ * 
+ * The animation time always advances every frame, so the pose is exact when
+ * the actor becomes visible again.
+ * 
+ * @author rgarcia
+ */
+public class SpineLODScheduler {
+	public static final int FULL = 0;
+	public static final int REDUCED = 1;
+	public static final int CULLED = 2;
+
+	/** Config property to enable/disable the LOD */
+	public static final String LOD_PROP = "spine_lod";
+
+	private static float reducedFPS = 15;
+	private static float culledFPS = 5;
+
+	/** Actors with less height than this fraction of the view are REDUCED */
+	private static float smallSize = 0.15f;
+
+	private static Boolean enabled = null;
+
+	public static boolean isEnabled() {
+		if (enabled == null)
+			enabled = Config.getProperty(LOD_PROP, true);
+
+		return enabled;
+	}
+
+	public static void setEnabled(boolean v) {
+		enabled = v;
+	}
+
+	/**
+	 * @return true if the rect, in scene coordinates, is inside the camera
+	 *         view.
+	 */
+	public static boolean isVisible(float x, float y, float width, float height) {
+		SceneCamera c = getCamera();
+
+		if (c == null)
+			return true;
+
+		float hw = c.viewportWidth * c.zoom / 2;
+		float hh = c.viewportHeight * c.zoom / 2;
+
+		return x < c.position.x + hw && x + width > c.position.x - hw && y < c.position.y + hh
+				&& y + height > c.position.y - hh;
+	}
+
+	public static boolean isVisible(Rectangle r) {
+		return isVisible(r.x, r.y, r.width, r.height);
+	}
+
+	/**
+	 * @param visible
+	 *            true if the actor was drawn inside the view in the last frame
+	 * @param height
+	 *            the height of the actor in scene coordinates
+	 */
+	public static int getLevel(boolean visible, float height) {
+		SceneCamera c = getCamera();
+
+		if (c == null)
+			return FULL;
+
+		if (!visible)
+			return CULLED;
+
+		if (height < smallSize * c.viewportHeight * c.zoom)
+			return REDUCED;
+
+		return FULL;
+	}
+
+	/**
+	 * @return the time between pose updates for the level
+	 */
+	public static float getInterval(int level) {
+		switch (level) {
+		case REDUCED:
+			return 1 / reducedFPS;
+		case CULLED:
+			return 1 / culledFPS;
+		default:
+			return 0;
+		}
+	}
+
+	public static void setReducedFPS(float fps) {
+		reducedFPS = fps;
+	}
+
+	public static void setCulledFPS(float fps) {
+		culledFPS = fps;
+	}
+
+	public static void setSmallSize(float size) {
+		smallSize = size;
+	}
+
+	/**
+	 * @return the camera of the current scene or null if the LOD is disabled
+	 *         or there is no scene, ex. in the editor.
+	 */
+	private static SceneCamera getCamera() {
+		if (!isEnabled())
+			return null;
+
+		World w = World.getInstance();
+
+		if (w.getCurrentScene() == null)
+			return null;
+
+		return w.getSceneCamera();
+	}
+}
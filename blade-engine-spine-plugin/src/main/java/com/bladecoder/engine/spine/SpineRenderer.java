@@ -19,7 +19,6 @@ import java.util.HashMap;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.math.Polygon;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
@@ -30,6 +29,7 @@ import com.bladecoder.engine.actions.ActionCallbackQueue;
 import com.bladecoder.engine.anim.AnimationDesc;
 import com.bladecoder.engine.anim.SpineAnimationDesc;
 import com.bladecoder.engine.anim.Tween;
+import com.bladecoder.engine.assets.AssetRegistry;
 import com.bladecoder.engine.assets.EngineAssetManager;
 import com.bladecoder.engine.model.ActorRenderer;
 import com.bladecoder.engine.model.BaseActor;
@@ -41,10 +41,10 @@ import com.bladecoder.engine.util.RectangleRenderer;
 import com.esotericsoftware.spine.Animation;
 import com.esotericsoftware.spine.AnimationState;
 import com.esotericsoftware.spine.AnimationState.AnimationStateListener;
+import com.esotericsoftware.spine.AnimationState.TrackEntry;
 import com.esotericsoftware.spine.AnimationStateData;
 import com.esotericsoftware.spine.Event;
 import com.esotericsoftware.spine.Skeleton;
-import com.esotericsoftware.spine.SkeletonBinary;
 import com.esotericsoftware.spine.SkeletonBounds;
 import com.esotericsoftware.spine.SkeletonData;
 import com.esotericsoftware.spine.SkeletonRenderer;
@@ -89,8 +89,23 @@ public class SpineRenderer implements ActorRenderer {
 
 	private boolean eventsEnabled = true;
 
+	// Level of detail. See SpineLODScheduler.
+	private int lodLevel = SpineLODScheduler.FULL;
+	private float lodTime = 0;
+
+	/** Drawn inside the camera view since the last update */
+	private boolean drawnVisible = false;
+	private float lastDrawHeight = 0;
+
+	/** The skeleton pose is older than the animation time */
+	private boolean poseDirty = false;
+
 	private Polygon bbox;
 
+	/**
+	 * The skeleton instance for every source. The atlases are reference
+	 * counted in the AssetRegistry.
+	 */
 	class SkeletonCacheEntry {
 		int refCounter;
 		Skeleton skeleton;
@@ -237,7 +252,29 @@ public class SpineRenderer implements ActorRenderer {
 				}
 			}
 
-			updateAnimation(d);
+			lodLevel = SpineLODScheduler.getLevel(drawnVisible, lastDrawHeight);
+			drawnVisible = false;
+
+			if (lodLevel == SpineLODScheduler.FULL) {
+				updateAnimation(d);
+			} else {
+				// the time always advances to resync the pose when needed
+				currentSource.animation.update(d);
+				lodTime += delta;
+				poseDirty = true;
+
+				if (lodTime >= SpineLODScheduler.getInterval(lodLevel)) {
+					lodTime = 0;
+
+					// fires the events and the animation callbacks
+					currentSource.animation.apply(currentSource.skeleton);
+
+					if (lodLevel == SpineLODScheduler.REDUCED) {
+						currentSource.skeleton.updateWorldTransform();
+						poseDirty = false;
+					}
+				}
+			}
 
 			lastAnimationTime += d;
 		}
@@ -247,12 +284,55 @@ public class SpineRenderer implements ActorRenderer {
 		currentSource.animation.update(time);
 		currentSource.animation.apply(currentSource.skeleton);
 		currentSource.skeleton.updateWorldTransform();
+		poseDirty = false;
+		lodTime = 0;
+	}
+
+	/**
+	 * Poses the skeleton at the current animation time. Unlike
+	 * AnimationState.apply(), no events are fired because they were fired
+	 * while culled.
+	 */
+	private void resyncPose() {
+		TrackEntry t = currentSource.animation.getCurrent(0);
+
+		if (t != null) {
+			float time = t.getTime();
+
+			if (!t.getLoop() && time > t.getEndTime())
+				time = t.getEndTime();
+
+			t.getAnimation().apply(currentSource.skeleton, time, time, t.getLoop(), null);
+		}
+
+		currentSource.skeleton.updateWorldTransform();
+		poseDirty = false;
 	}
 
 	@Override
 	public void draw(SpriteBatch batch, float x, float y, float scale) {
 
 		if (currentSource != null && currentSource.skeleton != null) {
+			float h = getHeight() * scale;
+			boolean visible;
+
+			if (bbox != null)
+				visible = SpineLODScheduler.isVisible(bbox.getBoundingRectangle());
+			else
+				visible = SpineLODScheduler.isVisible(x - getWidth() * scale / 2, y, getWidth() * scale, h);
+
+			lastDrawHeight = h;
+
+			// outside the camera
+			if (!visible)
+				return;
+
+			drawnVisible = true;
+
+			// visible again, the pose is synced to the current time
+			if (poseDirty && lodLevel == SpineLODScheduler.CULLED)
+				resyncPose();
+
 			currentSource.skeleton.setX(x / scale);
 			currentSource.skeleton.setY(y / scale);
 
@@ -569,7 +649,7 @@ public class SpineRenderer implements ActorRenderer {
 		}
 
 		if (entry.refCounter == 0)
-			EngineAssetManager.getInstance().loadAtlas(atlas == null ? source : atlas);
+			AssetRegistry.getInstance().acquireAtlas(this, atlas == null ? source : atlas);
 
 		entry.refCounter++;
 	}
@@ -584,11 +664,7 @@ public class SpineRenderer implements ActorRenderer {
 		}
 
 		if (entry.skeleton == null) {
-			TextureAtlas atlasTex = EngineAssetManager.getInstance().getTextureAtlas(atlas == null ? source : atlas);
-
-			SkeletonBinary skel = new SkeletonBinary(atlasTex);
-			skel.setScale(EngineAssetManager.getInstance().getScale());
-			SkeletonData skeletonData = skel.readSkeletonData(EngineAssetManager.getInstance().getSpine(source));
+			SkeletonData skeletonData = SkeletonDataCache.getInstance().acquire(source, atlas);
 
 			entry.skeleton = new Skeleton(skeletonData);
 
@@ -607,7 +683,10 @@ public class SpineRenderer implements ActorRenderer {
 		SkeletonCacheEntry entry = sourceCache.get(source);
 
 		if (entry.refCounter == 1) {
-			EngineAssetManager.getInstance().disposeAtlas(source);
+			if (entry.skeleton != null)
+				SkeletonDataCache.getInstance().release(entry.skeleton.getData());
+
+			AssetRegistry.getInstance().releaseAtlas(this, entry.atlas == null ? source : entry.atlas);
 			entry.animation = null;
 			entry.skeleton = null;
 		}
@@ -658,10 +737,13 @@ public class SpineRenderer implements ActorRenderer {
 
 	@Override
 	public void dispose() {
-		for (String key : sourceCache.keySet()) {
-			EngineAssetManager.getInstance().disposeAtlas(key);
+		for (SkeletonCacheEntry entry : sourceCache.values()) {
+			if (entry.refCounter > 0 && entry.skeleton != null)
+				SkeletonDataCache.getInstance().release(entry.skeleton.getData());
 		}
 
+		AssetRegistry.getInstance().releaseAll(this);
+
 		sourceCache.clear();
 		currentSource = null;
 		renderer = null;
@@ -23,12 +23,14 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.utils.BufferUtils;
 import com.bladecoder.engine.assets.EngineAssetManager;
+import com.bladecoder.engine.loader.ChapterBinaryLoader;
 import com.bladecoder.engine.model.World;
 import com.bladecoder.engine.ui.SceneScreen;
 import com.bladecoder.engine.ui.UI;
 import com.bladecoder.engine.ui.UI.Screens;
 import com.bladecoder.engine.util.Config;
 import com.bladecoder.engine.util.EngineLogger;
+import com.bladecoder.engine.util.FrameProfiler;
 
 public class BladeEngine implements ApplicationListener {
 
@@ -39,6 +41,8 @@ public class BladeEngine implements ApplicationListener {
 	private String forceRes;
 	private boolean debug = false;
 	private boolean restart = false;
+	private boolean compileChapters = false;
+	private boolean compileChaptersFailed = false;
 	private UI ui;
 	
 	public static UI getAppUI() {
@@ -65,6 +69,25 @@ public class BladeEngine implements ApplicationListener {
 		restart = true;
 	}
 	
+	/**
+	 * Compiles the chapters for the selected resolution and exits. See
+	 * {@link ChapterBinaryLoader}.
+	 */
+	public void setCompileChapters() {
+		compileChapters = true;
+	}
+	
+	public boolean isCompileChapters() {
+		return compileChapters;
+	}
+	
+	/**
+	 * @return true if the chapters were not compiled because of an error
+	 */
+	public boolean isCompileChaptersFailed() {
+		return compileChaptersFailed;
+	}
+	
 	public void setChapter(String chapter) {
 		this.chapter = chapter;
 	}
@@ -85,6 +108,8 @@ public class BladeEngine implements ApplicationListener {
 		if(debug)
 			EngineLogger.setDebug();
 		
+		FrameProfiler.setEnabled(Config.getProperty(Config.PROFILER_PROP, false));
+		
 		EngineLogger.debug("GAME CREATE");
 		
 		if(forceRes == null)
@@ -96,6 +121,18 @@ public class BladeEngine implements ApplicationListener {
 		
 		World.getInstance().loadXMLWorld();
 		
+		if(compileChapters) {
+			try {
+				ChapterBinaryLoader.compileChapters();
+			} catch (Exception e) {
+				EngineLogger.error("ERROR COMPILING CHAPTERS", e);
+				compileChaptersFailed = true;
+			}
+			
+			Gdx.app.exit();
+			return;
+		}
+		
 		ui = new UI();
 
 		if(chapter == null)
@@ -151,11 +188,16 @@ public class BladeEngine implements ApplicationListener {
 	public void dispose() {
 		EngineLogger.debug("GAME DISPOSE");
 		World.getInstance().dispose();
-		ui.dispose();
+		
+		if(ui != null)
+			ui.dispose();
 	}
 
 	@Override
 	public void render() {
+		if(ui == null)
+			return;
+		
 		ui.render();
 		
 		// Pause the game when an error is found
@@ -170,11 +212,16 @@ public class BladeEngine implements ApplicationListener {
 	@Override
 	public void resize(int width, int height) {
 		EngineLogger.debug(MessageFormat.format("GAME RESIZE {0}x{1}", width, height));
-		ui.resize(width, height);
+		
+		if(ui != null)
+			ui.resize(width, height);
 	}
 
 	@Override
 	public void pause() {
+		if(ui == null)
+			return;
+		
 		SceneScreen scnScr = (SceneScreen) ui.getScreen(Screens.SCENE_SCREEN);
 		boolean bot = scnScr.getTesterBot().isEnabled();
 		boolean r = scnScr.getRecorder().isPlaying();
@@ -191,7 +238,9 @@ public class BladeEngine implements ApplicationListener {
 	@Override
 	public void resume() {
 		EngineLogger.debug("GAME RESUME");
-		ui.resume();
+		
+		if(ui != null)
+			ui.resume();
 	}
 
 }
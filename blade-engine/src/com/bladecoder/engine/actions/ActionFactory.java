@@ -17,85 +17,219 @@ package com.bladecoder.engine.actions;
 
 import java.util.HashMap;
 
-import com.bladecoder.engine.actions.Action;
-import com.bladecoder.engine.actions.ActionFactory;
-
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 import com.bladecoder.engine.util.EngineLogger;
 
+/**
+ * Creates the actions by name or by class name.
+ * 
+ * The engine actions are registered with an {@link ActionCreator} so they are
+ * created without reflection. Custom actions can be registered with
+ * {@link #register(String, String, ActionCreator)}, the unregistered classes
+ * are created by reflection.
+ * 
+ * @author rgarcia
+ */
 public class ActionFactory {
 
+	/**
+	 * Creates a new instance of an action.
+	 */
+	public interface ActionCreator {
+		public Action create();
+	}
+
+	/** Action name -> class name */
 	private static final HashMap<String, String> actions = new HashMap<String, String>();
 
+	/** Class name -> creator */
+	private static final HashMap<String, ActionCreator> creators = new HashMap<String, ActionCreator>();
+
+	/** Classes of the unregistered actions created by reflection */
+	private static final HashMap<String, Class<?>> classes = new HashMap<String, Class<?>>();
+
 	static {
-		
-		actions.put("Lookat",
-				"com.bladecoder.engine.actions.LookAtAction");
-		actions.put("Pickup",
-				"com.bladecoder.engine.actions.PickUpAction");
-		actions.put("Goto",
-				"com.bladecoder.engine.actions.GotoAction");
-		actions.put("Leave",
-				"com.bladecoder.engine.actions.LeaveAction");	
-		actions.put("State",
-				"com.bladecoder.engine.actions.SetStateAction");
-		actions.put("Cutmode",
-				"com.bladecoder.engine.actions.SetCutmodeAction");
-		actions.put("ShowInventory",
-				"com.bladecoder.engine.actions.ShowInventoryAction");			
-		actions.put("Animation",
-				"com.bladecoder.engine.actions.AnimationAction");
-		actions.put("PositionAnim",
-				"com.bladecoder.engine.actions.PositionAction");
-		actions.put("ScaleAnim",
-				"com.bladecoder.engine.actions.ScaleAction");		
-		actions.put("RemoveInventoryItem",
-				"com.bladecoder.engine.actions.RemoveInventoryItemAction");	
-		actions.put("Say",
-				"com.bladecoder.engine.actions.SayAction");	
-		actions.put("DropItem",
-				"com.bladecoder.engine.actions.DropItemAction");
-		actions.put("Wait",
-				"com.bladecoder.engine.actions.WaitAction");
-		actions.put("Talkto",
-				"com.bladecoder.engine.actions.TalktoAction");
-		actions.put("DialogOptionAttr",
-				"com.bladecoder.engine.actions.SetDialogOptionAttrAction");
-		actions.put("SayDialog",
-				"com.bladecoder.engine.actions.SayDialogAction");
-		actions.put("RunVerb",
-				"com.bladecoder.engine.actions.RunVerbAction");
-		actions.put("CancelVerb",
-				"com.bladecoder.engine.actions.CancelVerbAction");
-		actions.put("Sound",
-				"com.bladecoder.engine.actions.SoundAction");
-		actions.put("Music",
-				"com.bladecoder.engine.actions.MusicAction");
-		actions.put("Camera",
-				"com.bladecoder.engine.actions.CameraAction");
-		actions.put("Transition",
-				"com.bladecoder.engine.actions.TransitionAction");
-		actions.put("LoadChapter",
-				"com.bladecoder.engine.actions.LoadChapterAction");
-		actions.put("SceneState",
-				"com.bladecoder.engine.actions.SetSceneStateAction");
-		actions.put("RemoveActor",
-				"com.bladecoder.engine.actions.RemoveActorAction");		
-		actions.put("ActorAttr",
-				"com.bladecoder.engine.actions.SetActorAttrAction");
-		actions.put("Repeat",
-				"com.bladecoder.engine.actions.RepeatAction");
-		actions.put("IfAttr",
-				"com.bladecoder.engine.actions.IfAttrAction");
-		actions.put("IfSceneAttr",
-				"com.bladecoder.engine.actions.IfSceneAttrAction");		
-		actions.put("Choose",
-				"com.bladecoder.engine.actions.ChooseAction");
-		actions.put("RunOnce",
-				"com.bladecoder.engine.actions.RunOnceAction");
-		actions.put("MoveToScene",
-				"com.bladecoder.engine.actions.MoveToSceneAction");
+		register("Lookat", LookAtAction.class, new ActionCreator() {
+			public Action create() {
+				return new LookAtAction();
+			}
+		});
+		register("Pickup", PickUpAction.class, new ActionCreator() {
+			public Action create() {
+				return new PickUpAction();
+			}
+		});
+		register("Goto", GotoAction.class, new ActionCreator() {
+			public Action create() {
+				return new GotoAction();
+			}
+		});
+		register("Leave", LeaveAction.class, new ActionCreator() {
+			public Action create() {
+				return new LeaveAction();
+			}
+		});
+		register("State", SetStateAction.class, new ActionCreator() {
+			public Action create() {
+				return new SetStateAction();
+			}
+		});
+		register("Cutmode", SetCutmodeAction.class, new ActionCreator() {
+			public Action create() {
+				return new SetCutmodeAction();
+			}
+		});
+		register("ShowInventory", ShowInventoryAction.class, new ActionCreator() {
+			public Action create() {
+				return new ShowInventoryAction();
+			}
+		});
+		register("Animation", AnimationAction.class, new ActionCreator() {
+			public Action create() {
+				return new AnimationAction();
+			}
+		});
+		register("PositionAnim", PositionAction.class, new ActionCreator() {
+			public Action create() {
+				return new PositionAction();
+			}
+		});
+		register("ScaleAnim", ScaleAction.class, new ActionCreator() {
+			public Action create() {
+				return new ScaleAction();
+			}
+		});
+		register("RemoveInventoryItem", RemoveInventoryItemAction.class, new ActionCreator() {
+			public Action create() {
+				return new RemoveInventoryItemAction();
+			}
+		});
+		register("Say", SayAction.class, new ActionCreator() {
+			public Action create() {
+				return new SayAction();
+			}
+		});
+		register("DropItem", DropItemAction.class, new ActionCreator() {
+			public Action create() {
+				return new DropItemAction();
+			}
+		});
+		register("Wait", WaitAction.class, new ActionCreator() {
+			public Action create() {
+				return new WaitAction();
+			}
+		});
+		register("Talkto", TalktoAction.class, new ActionCreator() {
+			public Action create() {
+				return new TalktoAction();
+			}
+		});
+		register("DialogOptionAttr", SetDialogOptionAttrAction.class, new ActionCreator() {
+			public Action create() {
+				return new SetDialogOptionAttrAction();
+			}
+		});
+		register("SayDialog", SayDialogAction.class, new ActionCreator() {
+			public Action create() {
+				return new SayDialogAction();
+			}
+		});
+		register("RunVerb", RunVerbAction.class, new ActionCreator() {
+			public Action create() {
+				return new RunVerbAction();
+			}
+		});
+		register("CancelVerb", CancelVerbAction.class, new ActionCreator() {
+			public Action create() {
+				return new CancelVerbAction();
+			}
+		});
+		register("Sound", SoundAction.class, new ActionCreator() {
+			public Action create() {
+				return new SoundAction();
+			}
+		});
+		register("Music", MusicAction.class, new ActionCreator() {
+			public Action create() {
+				return new MusicAction();
+			}
+		});
+		register("Camera", CameraAction.class, new ActionCreator() {
+			public Action create() {
+				return new CameraAction();
+			}
+		});
+		register("Transition", TransitionAction.class, new ActionCreator() {
+			public Action create() {
+				return new TransitionAction();
+			}
+		});
+		register("LoadChapter", LoadChapterAction.class, new ActionCreator() {
+			public Action create() {
+				return new LoadChapterAction();
+			}
+		});
+		register("SceneState", SetSceneStateAction.class, new ActionCreator() {
+			public Action create() {
+				return new SetSceneStateAction();
+			}
+		});
+		register("RemoveActor", RemoveActorAction.class, new ActionCreator() {
+			public Action create() {
+				return new RemoveActorAction();
+			}
+		});
+		register("ActorAttr", SetActorAttrAction.class, new ActionCreator() {
+			public Action create() {
+				return new SetActorAttrAction();
+			}
+		});
+		register("Repeat", RepeatAction.class, new ActionCreator() {
+			public Action create() {
+				return new RepeatAction();
+			}
+		});
+		register("IfAttr", IfAttrAction.class, new ActionCreator() {
+			public Action create() {
+				return new IfAttrAction();
+			}
+		});
+		register("IfSceneAttr", IfSceneAttrAction.class, new ActionCreator() {
+			public Action create() {
+				return new IfSceneAttrAction();
+			}
+		});
+		register("Choose", ChooseAction.class, new ActionCreator() {
+			public Action create() {
+				return new ChooseAction();
+			}
+		});
+		register("RunOnce", RunOnceAction.class, new ActionCreator() {
+			public Action create() {
+				return new RunOnceAction();
+			}
+		});
+		register("MoveToScene", MoveToSceneAction.class, new ActionCreator() {
+			public Action create() {
+				return new MoveToSceneAction();
+			}
+		});
+	}
+
+	private static void register(String name, Class<? extends Action> c, ActionCreator creator) {
+		register(name, c.getName(), creator);
+	}
+
+	/**
+	 * Registers an action. The name can be null for actions only created by
+	 * class name.
+	 */
+	public static void register(String name, String className, ActionCreator creator) {
+		if (name != null)
+			actions.put(name, className);
+
+		creators.put(className, creator);
 	}
 	
 	public static String []getActionList() {
@@ -116,23 +250,33 @@ public class ActionFactory {
 		return ActionFactory.createByClass(className, params);
 	}	
 	
-	
-	
 	public static Action createByClass(String className,
 			HashMap<String, String> params) {
 
 		Action a = null;
+		ActionCreator creator = creators.get(className);
+
+		if (creator != null) {
+			a = creator.create();
+		} else {
+			try {
+				Class<?> c = classes.get(className);
 
-		try {
-			Class<?> c = ClassReflection.forName(className);
-			a = (Action) ClassReflection.newInstance(c);
-			
-			if(params != null)
-				a.setParams(params);
-		} catch (ReflectionException e) {
-			EngineLogger.error(e.getMessage());
+				if (c == null) {
+					c = ClassReflection.forName(className);
+					classes.put(className, c);
+				}
+
+				a = (Action) ClassReflection.newInstance(c);
+			} catch (ReflectionException e) {
+				EngineLogger.error(e.getMessage());
+				return null;
+			}
 		}
 
+		if (params != null)
+			a.setParams(params);
+
 		return a;
 	}
 }
@@ -49,6 +49,10 @@ public class LeaveAction implements Action, ActionCallback {
 	}
 
 
+	public String getTargetScene() {
+		return scene;
+	}
+
 	@Override
 	public String getInfo() {
 		return INFO;
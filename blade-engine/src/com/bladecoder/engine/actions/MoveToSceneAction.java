@@ -63,12 +63,12 @@ public class MoveToSceneAction implements Action {
 		BaseActor a = s.getActor(actorId, false);
 		
 		s.removeActor(a);
-		if(s == World.getInstance().getCurrentScene())
+		if(World.getInstance().isSceneLoaded(s))
 			a.dispose();
 		
 		Scene ts =  (targetSceneId != null && !targetSceneId.isEmpty())? World.getInstance().getScene(targetSceneId): World.getInstance().getCurrentScene();
 		
-		if(ts == World.getInstance().getCurrentScene()) {
+		if(World.getInstance().isSceneLoaded(ts)) {
 			a.loadAssets();
 			EngineAssetManager.getInstance().finishLoading();
 			a.retrieveAssets();
@@ -80,6 +80,10 @@ public class MoveToSceneAction implements Action {
 	}
 
 
+	public String getTargetScene() {
+		return targetSceneId;
+	}
+
 	@Override
 	public String getInfo() {
 		return INFO;
@@ -72,6 +72,10 @@ public class RunVerbAction extends BaseCallbackAction implements VerbRunner {
 			BaseActor a = World.getInstance().getCurrentScene().getActor(actorId, true);
 
 			v = a.getVerbManager().getVerb(verb, state, target);
+
+			// the verb state and its callbacks are saved with the scene
+			if (a.getScene() != null)
+				a.getScene().setDirty(true);
 		}
 
 		if (v == null) {
@@ -26,6 +26,9 @@ public class AnimationDesc {
 	public final static String BACKLEFT = "backleft";
 	public final static String FRONTRIGHT = "frontright";
 	public final static String FRONTLEFT = "frontleft";
+	
+	public final static String[] DIRECTIONS = { BACK, FRONT, RIGHT, LEFT, BACKRIGHT, BACKLEFT, FRONTRIGHT,
+			FRONTLEFT };
 	public final static String STAND_ANIM = "stand";
 	public final static String WALK_ANIM = "walk";
 	public final static String TALK_ANIM = "talk";	
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.assets;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.bladecoder.engine.util.EngineLogger;
+
+/**
+ * Engine wide reference counter for the atlases and textures used by scenes
+ * and actor renderers.
+ * 
+ * Every consumer acquires the assets it uses passing itself as owner. The asset
+ * is loaded in the asset manager when it is acquired for the first time and
+ * unloaded when the last owner releases it. The owner references allow to
+ * release all the assets of a consumer when it is disposed.
+ */
+public class AssetRegistry {
+	public static enum AssetType {
+		ATLAS, TEXTURE
+	};
+
+	private static final AssetRegistry instance = new AssetRegistry();
+
+	private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+	/** The assets acquired by every owner and the number of references */
+	private final HashMap<Object, HashMap<Entry, Integer>> owners = new HashMap<Object, HashMap<Entry, Integer>>();
+
+	static class Entry {
+		AssetType type;
+		String name;
+		int refCounter;
+	}
+
+	public static AssetRegistry getInstance() {
+		return instance;
+	}
+
+	private AssetRegistry() {
+	}
+
+	/**
+	 * Adds a reference to an atlas. The atlas is queued for loading in the asset
+	 * manager when it is not referenced by anybody else.
+	 * 
+	 * @param owner the asset consumer that uses the atlas
+	 * @param atlas the atlas name without extension
+	 */
+	public void acquireAtlas(Object owner, String atlas) {
+		acquire(owner, AssetType.ATLAS, atlas);
+	}
+
+	public void releaseAtlas(Object owner, String atlas) {
+		release(owner, AssetType.ATLAS, atlas);
+	}
+
+	/**
+	 * Adds a reference to a texture.
+	 * 
+	 * @param owner the asset consumer that uses the texture
+	 * @param filename the texture filename relative to the assets folder
+	 */
+	public void acquireTexture(Object owner, String filename) {
+		acquire(owner, AssetType.TEXTURE, filename);
+	}
+
+	public void releaseTexture(Object owner, String filename) {
+		release(owner, AssetType.TEXTURE, filename);
+	}
+
+	/**
+	 * @return the number of references of the asset held by the owner.
+	 */
+	public int getRefCount(Object owner, AssetType type, String name) {
+		HashMap<Entry, Integer> refs = owners.get(owner);
+		Entry e = entries.get(getKey(type, name));
+
+		if (refs == null || e == null)
+			return 0;
+
+		Integer c = refs.get(e);
+
+		return c == null ? 0 : c;
+	}
+
+	/**
+	 * @return the number of references of the asset held by all the owners.
+	 */
+	public int getRefCount(AssetType type, String name) {
+		Entry e = entries.get(getKey(type, name));
+
+		return e == null ? 0 : e.refCounter;
+	}
+
+	/**
+	 * Releases all the references held by the owner.
+	 */
+	public void releaseAll(Object owner) {
+		HashMap<Entry, Integer> refs = owners.remove(owner);
+
+		if (refs == null)
+			return;
+
+		for (Map.Entry<Entry, Integer> r : refs.entrySet()) {
+			Entry e = r.getKey();
+
+			e.refCounter -= r.getValue();
+
+			if (e.refCounter <= 0)
+				unload(e);
+		}
+	}
+
+	/**
+	 * @return the texture memory in bytes of the referenced assets that are
+	 *         loaded.
+	 */
+	public long getResidentBytes() {
+		long bytes = 0;
+
+		for (Entry e : entries.values())
+			bytes += getResidentBytes(e);
+
+		return bytes;
+	}
+
+	/**
+	 * @return the texture memory in bytes of the referenced assets of the
+	 *         specified type.
+	 */
+	public long getResidentBytes(AssetType type) {
+		long bytes = 0;
+
+		for (Entry e : entries.values()) {
+			if (e.type == type)
+				bytes += getResidentBytes(e);
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * @return the names of the referenced assets of the specified type.
+	 */
+	public ArrayList<String> getAssets(AssetType type) {
+		ArrayList<String> l = new ArrayList<String>();
+
+		for (Entry e : entries.values()) {
+			if (e.type == type)
+				l.add(e.name);
+		}
+
+		return l;
+	}
+
+	/**
+	 * Forgets all the references without unloading the assets. Used when the
+	 * asset manager is disposed.
+	 */
+	public void clear() {
+		entries.clear();
+		owners.clear();
+	}
+
+	private void acquire(Object owner, AssetType type, String name) {
+		String key = getKey(type, name);
+		Entry e = entries.get(key);
+
+		if (e == null) {
+			e = new Entry();
+			e.type = type;
+			e.name = name;
+			entries.put(key, e);
+		}
+
+		if (e.refCounter == 0) {
+			if (type == AssetType.ATLAS)
+				EngineAssetManager.getInstance().loadAtlas(name);
+			else
+				EngineAssetManager.getInstance().loadTexture(name);
+		}
+
+		e.refCounter++;
+
+		HashMap<Entry, Integer> refs = owners.get(owner);
+
+		if (refs == null) {
+			refs = new HashMap<Entry, Integer>();
+			owners.put(owner, refs);
+		}
+
+		Integer c = refs.get(e);
+		refs.put(e, c == null ? 1 : c + 1);
+	}
+
+	private void release(Object owner, AssetType type, String name) {
+		Entry e = entries.get(getKey(type, name));
+		HashMap<Entry, Integer> refs = owners.get(owner);
+		Integer c = refs == null || e == null ? null : refs.get(e);
+
+		if (c == null) {
+			EngineLogger.error("AssetRegistry: releasing not acquired asset: " + name);
+			return;
+		}
+
+		if (c == 1) {
+			refs.remove(e);
+
+			if (refs.isEmpty())
+				owners.remove(owner);
+		} else {
+			refs.put(e, c - 1);
+		}
+
+		e.refCounter--;
+
+		if (e.refCounter == 0)
+			unload(e);
+	}
+
+	private void unload(Entry e) {
+		EngineAssetManager am = EngineAssetManager.getInstance();
+
+		if (e.type == AssetType.ATLAS) {
+			am.disposeAtlas(e.name);
+		} else if (am.isLoaded(e.name)) {
+			am.unload(e.name);
+		}
+
+		entries.remove(getKey(e.type, e.name));
+	}
+
+	private long getResidentBytes(Entry e) {
+		EngineAssetManager am = EngineAssetManager.getInstance();
+
+		if (e.type == AssetType.ATLAS) {
+			if (am.isAtlasLoaded(e.name))
+				return am.getAtlasTextureBytes(e.name);
+		} else if (am.isLoaded(e.name)) {
+			return am.getTextureBytes(am.getTexture(e.name));
+		}
+
+		return 0;
+	}
+
+	private static String getKey(AssetType type, String name) {
+		return type == AssetType.ATLAS ? EngineAssetManager.ATLASES_DIR + name : name;
+	}
+}
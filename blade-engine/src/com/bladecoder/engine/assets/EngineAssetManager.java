@@ -39,10 +39,13 @@ import com.badlogic.gdx.assets.loaders.resolvers.ResolutionFileResolver.Resoluti
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap.Format;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Page;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGeneratorLoader;
 import com.badlogic.gdx.graphics.g2d.freetype.FreetypeFontLoader;
@@ -148,6 +151,17 @@ public class EngineAssetManager extends AssetManager {
 		return !update();
 	}
 
+	/**
+	 * Loads assets during, at least, the specified time and returns. Used to
+	 * load assets without blocking the render thread.
+	 * 
+	 * @param millis the time budget for this call
+	 * @return true if there are assets pending to load
+	 */
+	public boolean isLoading(int millis) {
+		return !update(millis);
+	}
+
 	// public BitmapFont loadFont(String style) {
 	// String key =Config.getProperty(style, null);
 	//
@@ -238,6 +252,64 @@ public class EngineAssetManager extends AssetManager {
 		return a;
 	}
 
+	/**
+	 * Returns the texture memory used by an atlas. If the atlas is not loaded,
+	 * the size is estimated from the page sizes in the '.atlas' file.
+	 * 
+	 * @return the size in bytes or 0 if the atlas doesn't exists.
+	 */
+	public long getAtlasTextureBytes(String atlas) {
+		String filename = ATLASES_DIR + atlas + ".atlas";
+		long bytes = 0;
+
+		if (isLoaded(filename)) {
+			for (Texture t : get(filename, TextureAtlas.class).getTextures()) {
+				bytes += getTextureBytes(t);
+			}
+
+			return bytes;
+		}
+
+		FileHandle packFile = resResolver.resolve(filename);
+
+		if (!packFile.exists())
+			return 0;
+
+		TextureAtlasData data = new TextureAtlasData(packFile, packFile.parent(), false);
+
+		for (Page p : data.getPages()) {
+			bytes += (long) p.width * (long) p.height * getBytesPerPixel(p.format);
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * @return the memory in bytes used by the texture without mipmaps.
+	 */
+	public long getTextureBytes(Texture t) {
+		return (long) t.getWidth() * t.getHeight() * getBytesPerPixel(t.getTextureData().getFormat());
+	}
+
+	private static int getBytesPerPixel(Format format) {
+		if (format == null)
+			return 4;
+
+		switch (format) {
+		case Alpha:
+		case Intensity:
+			return 1;
+		case LuminanceAlpha:
+		case RGB565:
+		case RGBA4444:
+			return 2;
+		case RGB888:
+			return 3;
+		default:
+			return 4;
+		}
+	}
+
 	public Array<AtlasRegion> getRegions(String atlas, String name) {
 		TextureAtlas a = get(ATLASES_DIR + atlas + ".atlas", TextureAtlas.class);
 
@@ -269,6 +341,7 @@ public class EngineAssetManager extends AssetManager {
 
 	public void dispose() {
 		super.dispose();
+		AssetRegistry.getInstance().clear();
 		instance = null;
 	}
 
@@ -0,0 +1,316 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.bladecoder.engine.assets.EngineAssetManager;
+import com.bladecoder.engine.model.Scene;
+import com.bladecoder.engine.util.ActionCallbackSerialization;
+import com.bladecoder.engine.util.BinaryJsonReader;
+import com.bladecoder.engine.util.BinaryJsonWriter;
+import com.bladecoder.engine.util.EngineLogger;
+
+/**
+ * Precompiled chapters. The chapter XML is parsed at build time and its scenes
+ * are stored in the binary Json format used by the saved games, so the engine
+ * loads them without SAX parsing and without parsing attribute strings.
+ * 
+ * The positions are scaled when the chapter is parsed, so there is one
+ * compiled file for each resolution: 'chapter.resolution.bchapter'. If the
+ * compiled file doesn't exist, or the XML was modified after compiling it, the
+ * chapter is loaded from the XML.
+ * 
+ * Every scene is stored in its own block after an index with the scene ids and
+ * block sizes. This allows to parse the scenes lazily, when they are used for
+ * the first time.
+ * 
+ * @author rgarcia
+ */
+public class ChapterBinaryLoader {
+	public static final String BINARY_CHAPTER_EXT = ".bchapter";
+	public static final int VERSION = 3;
+
+	private static final byte[] MAGIC = { 'B', 'L', 'D', 'C' };
+
+	private String initScene;
+
+	/** Scene ids in chapter order */
+	private final ArrayList<String> sceneIds = new ArrayList<String>();
+
+	/** The compiled file content */
+	private byte[] data;
+
+	/** Offset and length of the scene blocks not parsed yet */
+	private final HashMap<String, int[]> sceneBlocks = new HashMap<String, int[]>();
+
+	/**
+	 * @return The chapter XML file
+	 */
+	public static FileHandle getXMLFile(String chapter) {
+		return EngineAssetManager.getInstance().getModelFile(chapter + XMLConstants.CHAPTER_EXT);
+	}
+
+	/**
+	 * @return The compiled chapter file for the current resolution
+	 */
+	public static FileHandle getChapterFile(String chapter) {
+		EngineAssetManager am = EngineAssetManager.getInstance();
+
+		return am.getModelFile(chapter + "." + am.getResolution().folder + BINARY_CHAPTER_EXT);
+	}
+
+	/**
+	 * Compiles all the chapters in the model folder for the current resolution.
+	 * Needs a writable model folder, so it is intended to be run from the
+	 * editor.
+	 */
+	public static void compileChapters() throws ParserConfigurationException, SAXException, IOException {
+		FileHandle[] chapters = EngineAssetManager.getInstance().getModelFile("").list(XMLConstants.CHAPTER_EXT);
+
+		for (FileHandle f : chapters) {
+			String chapter = f.nameWithoutExtension();
+
+			compile(chapter, getChapterFile(chapter));
+		}
+	}
+
+	/**
+	 * Parses the chapter XML and writes the compiled chapter.
+	 */
+	public static void compile(String chapter, FileHandle out) throws ParserConfigurationException, SAXException,
+			IOException {
+		long initTime = System.currentTimeMillis();
+
+		SAXParserFactory spf = SAXParserFactory.newInstance();
+		spf.setNamespaceAware(true);
+		SAXParser saxParser = spf.newSAXParser();
+
+		ChapterXMLLoader parser = new ChapterXMLLoader();
+		XMLReader xmlReader = saxParser.getXMLReader();
+		xmlReader.setContentHandler(parser);
+		byte[] xml = getXMLFile(chapter).readBytes();
+		xmlReader.parse(new InputSource(new ByteArrayInputStream(xml)));
+
+		List<Scene> scenes = parser.getScenes();
+		ArrayList<String> ids = new ArrayList<String>(scenes.size());
+		int[] sizes = new int[scenes.size()];
+		ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+
+		// The ActionCallback ids are given when the chapter is loaded
+		ActionCallbackSerialization.setWriteIds(false);
+
+		try {
+			for (int i = 0; i < scenes.size(); i++) {
+				int start = blocks.size();
+
+				// The visibility graph is stored with the scene, so it is not
+				// calculated when the scene is entered for the first time
+				if (scenes.get(i).getPolygonalNavGraph() != null)
+					scenes.get(i).getPolygonalNavGraph().createStaticGraph();
+
+				new Json().toJson(scenes.get(i), Scene.class, new BinaryJsonWriter(blocks));
+
+				ids.add(scenes.get(i).getId());
+				sizes[i] = blocks.size() - start;
+			}
+		} finally {
+			ActionCallbackSerialization.setWriteIds(true);
+		}
+
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		Json json = new Json();
+		json.setWriter(new BinaryJsonWriter(index));
+		json.writeObjectStart();
+		json.writeValue("scale", EngineAssetManager.getInstance().getScale());
+		json.writeValue("xmlLength", xml.length);
+		json.writeValue("xmlCRC", crc(xml));
+		json.writeValue("initScene", parser.getInitScene());
+		json.writeValue("sceneIds", ids, ArrayList.class, String.class);
+		json.writeValue("sceneSizes", sizes);
+		json.writeObjectEnd();
+		json.getWriter().close();
+
+		DataOutputStream os = new DataOutputStream(out.write(false));
+
+		try {
+			os.write(MAGIC);
+			os.writeInt(VERSION);
+			os.writeInt(index.size());
+			index.writeTo(os);
+			blocks.writeTo(os);
+		} finally {
+			StreamUtils.closeQuietly(os);
+		}
+
+		EngineLogger.debug("CHAPTER " + chapter + " COMPILED TO " + out.name() + " (ms): "
+				+ (System.currentTimeMillis() - initTime));
+	}
+
+	/**
+	 * Loads the index of a compiled chapter. The scenes are parsed when calling
+	 * {@link #loadScene(String)}.
+	 * 
+	 * @param xml
+	 *            The chapter XML. The compiled chapter is discarded if the XML
+	 *            changed after compiling it. Not checked if the XML doesn't
+	 *            exist.
+	 * @return The loaded chapter or null if the file was compiled for other
+	 *         version, resolution or XML.
+	 */
+	public static ChapterBinaryLoader load(FileHandle file, FileHandle xml) {
+		byte[] data = file.readBytes();
+
+		if (data.length < MAGIC.length + 8 || readInt(data, MAGIC.length) != VERSION) {
+			EngineLogger.debug("Compiled chapter " + file.name() + " is outdated, loading XML");
+			return null;
+		}
+
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (data[i] != MAGIC[i]) {
+				EngineLogger.debug("Compiled chapter " + file.name() + " is outdated, loading XML");
+				return null;
+			}
+		}
+
+		int indexOffset = MAGIC.length + 8;
+		int indexSize = readInt(data, MAGIC.length + 4);
+
+		JsonValue root = new BinaryJsonReader().parse(new ByteArrayInputStream(data, indexOffset, indexSize));
+		Json json = new Json();
+
+		float scale = json.readValue("scale", Float.class, 0f, root);
+
+		if (scale != EngineAssetManager.getInstance().getScale()) {
+			EngineLogger.debug("Compiled chapter " + file.name() + " is for other resolution, loading XML");
+			return null;
+		}
+
+		// The XML is read but not parsed, much faster than parsing it
+		if (xml != null && xml.exists()) {
+			byte[] xmlData = xml.readBytes();
+
+			if (json.readValue("xmlLength", Integer.class, -1, root) != xmlData.length
+					|| json.readValue("xmlCRC", Long.class, 0L, root) != crc(xmlData)) {
+				EngineLogger.debug("Compiled chapter " + file.name() + " is older than the XML, loading XML");
+				return null;
+			}
+		}
+
+		ChapterBinaryLoader chapter = new ChapterBinaryLoader();
+		chapter.data = data;
+		chapter.initScene = json.readValue("initScene", String.class, root);
+
+		String[] ids = json.readValue("sceneIds", String[].class, root);
+		int[] sizes = json.readValue("sceneSizes", int[].class, root);
+		int offset = indexOffset + indexSize;
+
+		for (int i = 0; i < ids.length; i++) {
+			chapter.sceneIds.add(ids[i]);
+			chapter.sceneBlocks.put(ids[i], new int[] { offset, sizes[i] });
+			offset += sizes[i];
+		}
+
+		return chapter;
+	}
+
+	private static long crc(byte[] b) {
+		CRC32 crc = new CRC32();
+		crc.update(b);
+
+		return crc.getValue();
+	}
+
+	private static int readInt(byte[] b, int pos) {
+		return ((b[pos] & 0xff) << 24) | ((b[pos + 1] & 0xff) << 16) | ((b[pos + 2] & 0xff) << 8) | (b[pos + 3] & 0xff);
+	}
+
+	public String getInitScene() {
+		return initScene;
+	}
+
+	/**
+	 * @return The ids of all the chapter scenes, in chapter order
+	 */
+	public List<String> getSceneIds() {
+		return sceneIds;
+	}
+
+	/**
+	 * @return The ids of the scenes not parsed yet
+	 */
+	public Set<String> getPendingScenes() {
+		return sceneBlocks.keySet();
+	}
+
+	/**
+	 * Parses a scene. Every scene can only be parsed once, the block is
+	 * released after parsing.
+	 * 
+	 * @return The scene or null if the scene is not in the chapter or it was
+	 *         already parsed.
+	 */
+	public Scene loadScene(String id) {
+		int[] block = sceneBlocks.remove(id);
+
+		if (block == null)
+			return null;
+
+		JsonValue root = new BinaryJsonReader().parse(new ByteArrayInputStream(data, block[0], block[1]));
+		Scene s = new Json().readValue(Scene.class, root);
+
+		if (sceneBlocks.isEmpty())
+			data = null;
+
+		return s;
+	}
+
+	/**
+	 * Parses all the scenes not parsed yet.
+	 */
+	public ArrayList<Scene> loadScenes() {
+		ArrayList<Scene> scenes = new ArrayList<Scene>();
+
+		for (String id : sceneIds) {
+			Scene s = loadScene(id);
+
+			if (s != null)
+				scenes.add(s);
+		}
+
+		return scenes;
+	}
+}
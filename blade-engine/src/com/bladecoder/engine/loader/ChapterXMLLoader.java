@@ -53,6 +53,7 @@ import com.bladecoder.engine.model.Verb;
 import com.bladecoder.engine.model.VerbManager;
 import com.bladecoder.engine.model.SpriteActor.DepthType;
 import com.bladecoder.engine.polygonalpathfinder.PolygonalNavGraph;
+import com.bladecoder.engine.util.Config;
 import com.bladecoder.engine.util.EngineLogger;
 
 public class ChapterXMLLoader extends DefaultHandler {
@@ -63,6 +64,9 @@ public class ChapterXMLLoader extends DefaultHandler {
 	private Dialog currentDialog;
 	private DialogOption currentOption;
 	private String initAnimation = null;
+	
+	/** The atlas with the baked animations of the current 3D actor */
+	private String bakedAtlas = null;
 	private String player = null;
 
 	private float scale;
@@ -224,6 +228,7 @@ public class ChapterXMLLoader extends DefaultHandler {
 
 	private void parseActor(Attributes atts) throws SAXException {
 		String type = atts.getValue(XMLConstants.TYPE_ATTR);
+		bakedAtlas = null;
 
 		if (type == null || type.isEmpty()) {
 			SAXParseException e2 = new SAXParseException("BaseActor 'type' attribute not found or empty", locator);
@@ -242,46 +247,69 @@ public class ChapterXMLLoader extends DefaultHandler {
 																// RENDERER
 				((SpriteActor) actor).setRenderer(new ImageRenderer());
 			} else if (type.equals(XMLConstants.S3D_VALUE)) { // 3D RENDERER
-				Sprite3DRenderer r = new Sprite3DRenderer();
-				((SpriteActor) actor).setRenderer(r);
+				String baked = atts.getValue(XMLConstants.BAKED_ATLAS_ATTR);
+
+				// Use the animations baked in an atlas if available
+				if (baked != null && !baked.isEmpty() && Config.getProperty(Config.BAKED_3D_PROP, true)
+						&& EngineAssetManager.getInstance().assetExists(
+								EngineAssetManager.ATLASES_DIR + baked + ".atlas")) {
+					bakedAtlas = baked;
+					((SpriteActor) actor).setRenderer(new AtlasRenderer());
+				} else {
+					Sprite3DRenderer r = new Sprite3DRenderer();
+					((SpriteActor) actor).setRenderer(r);
 
-				Vector3 camPos, camRot;
-				float fov = 67;
+					Vector3 camPos, camRot;
+					float fov = 67;
 
-				try {
-					Vector2 spriteSize = Param.parseVector2(atts.getValue(XMLConstants.SPRITE_SIZE_ATTR));
+					try {
+						Vector2 spriteSize = Param.parseVector2(atts.getValue(XMLConstants.SPRITE_SIZE_ATTR));
 
-					spriteSize.x *= scale;
-					spriteSize.y *= scale;
+						spriteSize.x *= scale;
+						spriteSize.y *= scale;
 
-					r.setSpriteSize(spriteSize);
+						r.setSpriteSize(spriteSize);
 
-					if (atts.getValue(XMLConstants.CAM_POS_ATTR) != null) {
+						if (atts.getValue(XMLConstants.CAM_POS_ATTR) != null) {
 
-						camPos = Param.parseVector3(atts.getValue(XMLConstants.CAM_POS_ATTR));
+							camPos = Param.parseVector3(atts.getValue(XMLConstants.CAM_POS_ATTR));
 
-						r.setCameraPos(camPos.x, camPos.y, camPos.z);
-					}
+							r.setCameraPos(camPos.x, camPos.y, camPos.z);
+						}
 
-					if (atts.getValue(XMLConstants.CAM_ROT_ATTR) != null) {
-						camRot = Param.parseVector3(atts.getValue(XMLConstants.CAM_ROT_ATTR));
+						if (atts.getValue(XMLConstants.CAM_ROT_ATTR) != null) {
+							camRot = Param.parseVector3(atts.getValue(XMLConstants.CAM_ROT_ATTR));
 
-						r.setCameraRot(camRot.x, camRot.y, camRot.z);
-					}
+							r.setCameraRot(camRot.x, camRot.y, camRot.z);
+						}
 
-					fov = Float.parseFloat(atts.getValue(XMLConstants.FOV_ATTR));
-					r.setCameraFOV(fov);
+						fov = Float.parseFloat(atts.getValue(XMLConstants.FOV_ATTR));
+						r.setCameraFOV(fov);
 
-					if (atts.getValue(XMLConstants.CAMERA_NAME_ATTR) != null) {
-						r.setCameraName(atts.getValue(XMLConstants.CAMERA_NAME_ATTR));
-					}
+						if (atts.getValue(XMLConstants.CAMERA_NAME_ATTR) != null) {
+							r.setCameraName(atts.getValue(XMLConstants.CAMERA_NAME_ATTR));
+						}
 
-				} catch (Exception e) {
-					SAXParseException e2 = new SAXParseException("Wrong sprite3d params", locator, e);
-					error(e2);
-					throw e2;
-				}
+						if (atts.getValue(XMLConstants.REDRAW_FPS_ATTR) != null
+								&& !atts.getValue(XMLConstants.REDRAW_FPS_ATTR).isEmpty()) {
+							r.setRedrawFPS(Float.parseFloat(atts.getValue(XMLConstants.REDRAW_FPS_ATTR)));
+						}
 
+						String shadow = atts.getValue(XMLConstants.SHADOW_ATTR);
+
+						if (XMLConstants.SHADOW_BLOB_VALUE.equals(shadow)) {
+							r.setRenderShadow(false);
+							r.setBlobShadow(true);
+						} else if (XMLConstants.SHADOW_NONE_VALUE.equals(shadow)) {
+							r.setRenderShadow(false);
+						}
+
+					} catch (Exception e) {
+						SAXParseException e2 = new SAXParseException("Wrong sprite3d params", locator, e);
+						error(e2);
+						throw e2;
+					}
+				}
 			} else if (type.equals(XMLConstants.SPINE_VALUE)) { // SPINE
 																// RENDERER
 				try {
@@ -528,6 +556,12 @@ public class ChapterXMLLoader extends DefaultHandler {
 			animationType = Tween.NO_REPEAT;
 		}
 
+		if (bakedAtlas != null) {
+			addBakedAnimations(atts, id, speed, delay, count, animationType, soundId, inD, outD, preload,
+					disposeWhenPlayed);
+			return;
+		}
+
 		AnimationDesc sa = null;
 
 		boolean isSpine = false;
@@ -560,6 +594,43 @@ public class ChapterXMLLoader extends DefaultHandler {
 		((SpriteActor) actor).getRenderer().addAnimation(sa);
 	}
 
+	/**
+	 * Adds the animations of a 3D actor baked in an atlas. Animations without
+	 * direction are baked for every direction, so the same ids that in the 3D
+	 * renderer are available.
+	 */
+	private void addBakedAnimations(Attributes atts, String id, float speed, float delay, int count,
+			int animationType, String soundId, Vector2 inD, Vector2 outD, boolean preload, boolean disposeWhenPlayed)
+			throws SAXException {
+		String durationstr = atts.getValue(XMLConstants.BAKED_DURATION_ATTR);
+		float duration = 1 / speed;
+
+		try {
+			if (durationstr != null && !durationstr.isEmpty())
+				duration = Float.parseFloat(durationstr);
+		} catch (NumberFormatException e) {
+			SAXParseException e2 = new SAXParseException("Wrong baked duration", locator, e);
+			error(e2);
+			throw e2;
+		}
+
+		ActorRenderer renderer = ((SpriteActor) actor).getRenderer();
+
+		AtlasAnimationDesc sa = new AtlasAnimationDesc();
+		sa.set(id, bakedAtlas, duration, delay, count, animationType, soundId, inD, outD, preload, disposeWhenPlayed);
+		renderer.addAnimation(sa);
+
+		if (id.indexOf('.') != -1)
+			return;
+
+		for (String dir : AnimationDesc.DIRECTIONS) {
+			sa = new AtlasAnimationDesc();
+			sa.set(id + "." + dir, bakedAtlas, duration, delay, count, animationType, soundId, inD, outD, preload,
+					disposeWhenPlayed);
+			renderer.addAnimation(sa);
+		}
+	}
+
 	private void parseSound(Attributes atts, BaseActor actor) throws SAXException {
 		String id = atts.getValue(XMLConstants.ID_ATTR);
 		String filename = atts.getValue(XMLConstants.FILENAME_ATTR);
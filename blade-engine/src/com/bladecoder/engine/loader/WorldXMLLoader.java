@@ -17,7 +17,9 @@ package com.bladecoder.engine.loader;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -31,6 +33,7 @@ import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
+import com.badlogic.gdx.files.FileHandle;
 import com.bladecoder.engine.actions.Action;
 import com.bladecoder.engine.actions.ActionFactory;
 import com.bladecoder.engine.assets.EngineAssetManager;
@@ -39,6 +42,7 @@ import com.bladecoder.engine.model.Scene;
 import com.bladecoder.engine.model.Verb;
 import com.bladecoder.engine.model.VerbManager;
 import com.bladecoder.engine.model.World;
+import com.bladecoder.engine.util.Config;
 import com.bladecoder.engine.util.EngineLogger;
 
 public class WorldXMLLoader extends DefaultHandler {
@@ -73,30 +77,78 @@ public class WorldXMLLoader extends DefaultHandler {
 			chapter = world.getInitChapter();
 		}
 
-		SAXParserFactory spf = SAXParserFactory.newInstance();
-		spf.setNamespaceAware(true);
-		SAXParser saxParser = spf.newSAXParser();
+		String initScene = loadChapterScenes(chapter, world);
 
-		ChapterXMLLoader parser = new ChapterXMLLoader();
-		XMLReader xmlReader = saxParser.getXMLReader();
-		xmlReader.setContentHandler(parser);
-		xmlReader.parse(new InputSource(EngineAssetManager.getInstance()
-				.getModelFile(chapter + XMLConstants.CHAPTER_EXT).read()));
+		if (initScene != null)
+			world.setCurrentScene(initScene);
+	}
+
+	/**
+	 * Parses the chapter and adds its scenes to the world without changing the
+	 * current scene. The loaded scenes are not dirty.
+	 * 
+	 * @return The id of the chapter init scene or null if the chapter is empty
+	 */
+	public static String loadChapterScenes(String chapter, World world)
+			throws ParserConfigurationException, SAXException, IOException {
+		List<Scene> scenes = null;
+		String initScene = null;
+		String firstScene = null;
+
+		FileHandle compiled = ChapterBinaryLoader.getChapterFile(chapter);
+
+		if (compiled.exists()) {
+			ChapterBinaryLoader binaryLoader = ChapterBinaryLoader.load(compiled,
+					ChapterBinaryLoader.getXMLFile(chapter));
+
+			if (binaryLoader != null) {
+				initScene = binaryLoader.getInitScene();
+
+				if (binaryLoader.getSceneIds().size() > 0)
+					firstScene = binaryLoader.getSceneIds().get(0);
+
+				// In lazy mode the scenes are parsed when used for the first
+				// time
+				if (Config.getProperty(Config.LAZY_SCENES_PROP, true)) {
+					scenes = new ArrayList<Scene>();
+					world.setPendingScenes(binaryLoader);
+				} else {
+					scenes = binaryLoader.loadScenes();
+				}
+			}
+		}
+
+		// XML fallback
+		if (scenes == null) {
+			SAXParserFactory spf = SAXParserFactory.newInstance();
+			spf.setNamespaceAware(true);
+			SAXParser saxParser = spf.newSAXParser();
+
+			ChapterXMLLoader parser = new ChapterXMLLoader();
+			XMLReader xmlReader = saxParser.getXMLReader();
+			xmlReader.setContentHandler(parser);
+			xmlReader.parse(new InputSource(EngineAssetManager.getInstance()
+					.getModelFile(chapter + XMLConstants.CHAPTER_EXT).read()));
+
+			scenes = parser.getScenes();
+			initScene = parser.getInitScene();
+
+			if (scenes.size() > 0)
+				firstScene = scenes.get(0).getId();
+		}
 
 		I18N.loadChapter(EngineAssetManager.MODEL_DIR + chapter);
 
 		world.setChapter(chapter);
 
-		for (Scene s : parser.getScenes()) {
+		for (Scene s : scenes) {
 			s.resetCamera(world.getWidth(), world.getHeight());
+			s.setDirty(false);
 
 			world.addScene(s);
 		}
 
-		if (parser.getInitScene() != null)
-			world.setCurrentScene(parser.getInitScene());
-		else if (parser.getScenes().size() > 0)
-			world.setCurrentScene(parser.getScenes().get(0).getId());
+		return initScene != null ? initScene : firstScene;
 	}	
 
 	public WorldXMLLoader(World world) {
@@ -152,14 +204,18 @@ public class WorldXMLLoader extends DefaultHandler {
 		}
 	}
 
+	private final HashMap<String, String> actionParams = new HashMap<String, String>();
+
 	private void parseAction(String localName, Attributes atts) {
 
 		if (localName.equals(XMLConstants.ACTION_TAG)) {
 			String actionName = null;
 			Action action = null;
-			HashMap<String, String> params = new HashMap<String, String>();
+			HashMap<String, String> params = actionParams;
 			String actionClass = null;
 
+			params.clear();
+
 			for (int i = 0; i < atts.getLength(); i++) {
 				String attName = atts.getLocalName(i);
 
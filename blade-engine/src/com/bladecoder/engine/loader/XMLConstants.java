@@ -34,6 +34,13 @@ public final class XMLConstants {
 	public static final String CAM_ROT_ATTR = "cam_rot";
 	public static final String FOV_ATTR = "fov";
 	public static final String CAMERA_NAME_ATTR = "camera_name";
+	public static final String BAKED_ATLAS_ATTR = "baked_atlas";
+	public static final String BAKED_DURATION_ATTR = "baked_duration";
+	public static final String REDRAW_FPS_ATTR = "redraw_fps";
+	public static final String SHADOW_ATTR = "shadow";
+	public static final String SHADOW_DYNAMIC_VALUE = "dynamic";
+	public static final String SHADOW_BLOB_VALUE = "blob";
+	public static final String SHADOW_NONE_VALUE = "none";
 	public static final String SPINE_VALUE = "spine";
 	public static final String WALKING_SPEED_ATTR = "walking_speed";
 	public static final String INIT_ANIMATION_ATTR = "init_animation";
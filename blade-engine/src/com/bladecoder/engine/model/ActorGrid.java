@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.model;
+
+import java.util.ArrayList;
+
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Uniform grid over the actor bboxes to speed up the hit tests.
+ * 
+ * Every actor is added to the cells overlapped by its bbox bounding rectangle.
+ * When an actor moves or changes its bbox it must be invalidated. Invalidated
+ * actors are relocated in the next query, so moving actors don't pay for the
+ * index every frame.
+ */
+public class ActorGrid {
+	public static final float DEFAULT_CELL_SIZE = 256f;
+
+	private final float cellSize;
+
+	private final LongMap<ArrayList<BaseActor>> cells = new LongMap<ArrayList<BaseActor>>();
+
+	/** Actors pending to relocate in the grid */
+	private final ArrayList<BaseActor> dirty = new ArrayList<BaseActor>();
+
+	private final int[] tmpRange = new int[4];
+
+	public ActorGrid() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	public ActorGrid(float cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	public void add(BaseActor a) {
+		if (a.gridRange != null)
+			return;
+
+		int[] r = new int[4];
+
+		computeRange(a.getBBox(), r);
+		insert(a, r);
+		a.gridRange = r;
+		a.gridDirty = false;
+	}
+
+	public void remove(BaseActor a) {
+		int[] r = a.gridRange;
+
+		if (r == null)
+			return;
+
+		erase(a, r);
+		a.gridRange = null;
+
+		if (a.gridDirty) {
+			dirty.remove(a);
+			a.gridDirty = false;
+		}
+	}
+
+	/**
+	 * Marks the actor to be relocated in the grid in the next query.
+	 */
+	public void invalidate(BaseActor a) {
+		if (a.gridRange != null && !a.gridDirty) {
+			a.gridDirty = true;
+			dirty.add(a);
+		}
+	}
+
+	/**
+	 * Returns the actors in the cell that contains the point. The returned list
+	 * must not be modified.
+	 * 
+	 * @return the candidates to contain the point or null if the cell is empty.
+	 */
+	public ArrayList<BaseActor> getActorsAt(float x, float y) {
+		flush();
+
+		return cells.get(getKey(toCell(x), toCell(y)));
+	}
+
+	/**
+	 * Fast check to discard actors before doing the polygon hit test.
+	 * 
+	 * @return false if the actor bbox can't contain the point.
+	 */
+	public boolean mayContain(BaseActor a, float x, float y) {
+		int[] r = a.gridRange;
+
+		// Not indexed or pending to relocate
+		if (r == null || a.gridDirty)
+			return true;
+
+		int cx = toCell(x);
+		int cy = toCell(y);
+
+		return cx >= r[0] && cy >= r[1] && cx <= r[2] && cy <= r[3];
+	}
+
+	/**
+	 * Relocates the invalidated actors.
+	 */
+	private void flush() {
+		for (int i = 0; i < dirty.size(); i++) {
+			BaseActor a = dirty.get(i);
+			int[] r = a.gridRange;
+
+			a.gridDirty = false;
+			computeRange(a.getBBox(), tmpRange);
+
+			if (r[0] == tmpRange[0] && r[1] == tmpRange[1] && r[2] == tmpRange[2] && r[3] == tmpRange[3])
+				continue;
+
+			erase(a, r);
+			System.arraycopy(tmpRange, 0, r, 0, 4);
+			insert(a, r);
+		}
+
+		dirty.clear();
+	}
+
+	private void insert(BaseActor a, int[] r) {
+		for (int x = r[0]; x <= r[2]; x++) {
+			for (int y = r[1]; y <= r[3]; y++) {
+				long key = getKey(x, y);
+				ArrayList<BaseActor> cell = cells.get(key);
+
+				if (cell == null) {
+					cell = new ArrayList<BaseActor>();
+					cells.put(key, cell);
+				}
+
+				cell.add(a);
+			}
+		}
+	}
+
+	private void erase(BaseActor a, int[] r) {
+		for (int x = r[0]; x <= r[2]; x++) {
+			for (int y = r[1]; y <= r[3]; y++) {
+				ArrayList<BaseActor> cell = cells.get(getKey(x, y));
+
+				if (cell != null)
+					cell.remove(a);
+			}
+		}
+	}
+
+	private void computeRange(Polygon bbox, int[] r) {
+		// Empty bbox. The renderer has not computed it yet.
+		if (bbox == null || bbox.getVertices().length < 6) {
+			r[0] = r[1] = 1;
+			r[2] = r[3] = 0;
+			return;
+		}
+
+		Rectangle rect = bbox.getBoundingRectangle();
+
+		r[0] = toCell(rect.x);
+		r[1] = toCell(rect.y);
+		r[2] = toCell(rect.x + rect.width);
+		r[3] = toCell(rect.y + rect.height);
+	}
+
+	private int toCell(float v) {
+		float c = v / cellSize;
+		int i = (int) c;
+
+		// floor for negative values
+		return c < i ? i - 1 : i;
+	}
+
+	private static long getKey(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.model;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.bladecoder.engine.util.EngineLogger;
+
+/**
+ * Writes the game state snapshots and their screenshots in a background
+ * thread.
+ * 
+ * The game state is serialized in the game thread to a byte array. This class
+ * writes it to a temporal file that is renamed to the final name when
+ * complete, so a crash while saving never leaves a broken saved game. The
+ * screenshot is also flipped and encoded to PNG in the background thread.
+ * 
+ * @author rgarcia
+ */
+public class AsyncGameStateWriter {
+	private static final String TMP_EXT = ".tmp";
+
+	private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "GameStateWriter");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		}
+	};
+
+	/** Created when needed and shut down in dispose() */
+	private ExecutorService executor;
+
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/**
+	 * Queues the save. Saves are written in order.
+	 * 
+	 * @param file
+	 *            The saved game file.
+	 * @param state
+	 *            The serialized game state.
+	 * @param screenshotFile
+	 *            The screenshot file. Can be null.
+	 * @param screenshot
+	 *            The screenshot read from the frame buffer. It is disposed
+	 *            after writing it.
+	 */
+	public void write(final FileHandle file, final byte[] state, final FileHandle screenshotFile,
+			final Pixmap screenshot) {
+		pending.incrementAndGet();
+
+		if (executor == null)
+			executor = Executors.newSingleThreadExecutor(THREAD_FACTORY);
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					long initTime = System.currentTimeMillis();
+
+					writeAtomic(file, state);
+
+					if (screenshot != null) {
+						writeScreenshot(screenshotFile, screenshot);
+					}
+
+					EngineLogger.debug("ASYNC GAME STATE WRITING TIME (ms): "
+							+ (System.currentTimeMillis() - initTime));
+				} catch (Exception e) {
+					EngineLogger.error("ERROR SAVING GAME", e);
+				} finally {
+					pending.decrementAndGet();
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return true if there are saves not written yet.
+	 */
+	public boolean isWriting() {
+		return pending.get() > 0;
+	}
+
+	/**
+	 * Blocks until all the queued saves are written.
+	 */
+	public void waitForCompletion() {
+		while (isWriting()) {
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Waits for the queued saves and stops the writing thread. The writer can
+	 * be used again after disposing it.
+	 */
+	public void dispose() {
+		if (executor == null)
+			return;
+
+		executor.shutdown();
+
+		try {
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS))
+				EngineLogger.error("TIMEOUT WAITING FOR THE GAME STATE WRITER");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		executor = null;
+	}
+
+	/**
+	 * Restores the saved game from the temporal file when the process was
+	 * killed after deleting the old save and before renaming the new one.
+	 */
+	public static void recover(FileHandle file) {
+		FileHandle tmp = file.sibling(file.name() + TMP_EXT);
+
+		if (!file.exists() && tmp.exists()) {
+			EngineLogger.debug("RECOVERING SAVED GAME FROM: " + tmp.name());
+
+			if (!tmp.file().renameTo(file.file()))
+				tmp.moveTo(file);
+		}
+	}
+
+	private static void writeAtomic(FileHandle file, byte[] data) {
+		FileHandle tmp = file.sibling(file.name() + TMP_EXT);
+
+		tmp.writeBytes(data, false);
+
+		// File.renameTo() does not replace an existing file in all the
+		// platforms. Only then the old file is deleted, recover() restores
+		// the save if the process dies before the move.
+		if (!tmp.file().renameTo(file.file())) {
+			file.delete();
+			tmp.moveTo(file);
+		}
+	}
+
+	/**
+	 * Flips the screenshot upside down and writes it as PNG.
+	 */
+	static void writeScreenshot(FileHandle file, Pixmap pixmap) {
+		try {
+			int w = pixmap.getWidth();
+			int h = pixmap.getHeight();
+
+			ByteBuffer pixels = pixmap.getPixels();
+			int numBytesPerLine = w * 4;
+			byte[] lines = new byte[numBytesPerLine * h];
+
+			for (int i = 0; i < h; i++) {
+				pixels.position((h - i - 1) * numBytesPerLine);
+				pixels.get(lines, i * numBytesPerLine, numBytesPerLine);
+			}
+
+			pixels.clear();
+			pixels.put(lines);
+
+			PixmapIO.writePNG(file, pixmap);
+		} finally {
+			pixmap.dispose();
+		}
+	}
+}
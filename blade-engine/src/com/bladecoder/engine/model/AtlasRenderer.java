@@ -21,6 +21,7 @@ import java.util.HashMap;
 import com.bladecoder.engine.model.ActorRenderer;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
@@ -35,6 +36,8 @@ import com.bladecoder.engine.anim.AtlasAnimationDesc;
 import com.bladecoder.engine.anim.FATween;
 import com.bladecoder.engine.anim.AnimationDesc;
 import com.bladecoder.engine.anim.Tween;
+import com.bladecoder.engine.assets.AssetRegistry;
+import com.bladecoder.engine.assets.AssetRegistry.AssetType;
 import com.bladecoder.engine.assets.EngineAssetManager;
 import com.bladecoder.engine.util.EngineLogger;
 import com.bladecoder.engine.util.RectangleRenderer;
@@ -55,12 +58,7 @@ public class AtlasRenderer implements ActorRenderer {
 	
 	private int currentFrameIndex;
 	
-	private final HashMap<String, AtlasCacheEntry> sourceCache = new HashMap<String, AtlasCacheEntry>();
 	private Polygon bbox;
-
-	class AtlasCacheEntry {
-		int refCounter;
-	}
 	
 	
 	public AtlasRenderer() {
@@ -134,6 +132,13 @@ public class AtlasRenderer implements ActorRenderer {
 		}
 	}
 
+	/**
+	 * @return The texture of the current frame or null if not loaded.
+	 */
+	public Texture getTexture() {
+		return tex == null ? null : tex.getTexture();
+	}
+
 	@Override
 	public float getWidth() {
 		if (tex == null)
@@ -390,17 +395,7 @@ public class AtlasRenderer implements ActorRenderer {
 	}
 	
 	private void loadSource(String source) {
-		AtlasCacheEntry entry = sourceCache.get(source);
-		
-		if(entry == null) {
-			entry = new AtlasCacheEntry();
-			sourceCache.put(source, entry);
-		}
-
-		if (entry.refCounter == 0)
-			EngineAssetManager.getInstance().loadAtlas(source);
-
-		entry.refCounter++;
+		AssetRegistry.getInstance().acquireAtlas(this, source);
 	}
 	
 	private void retrieveFA(AtlasAnimationDesc fa) {
@@ -409,22 +404,14 @@ public class AtlasRenderer implements ActorRenderer {
 	}
 
 	private void retrieveSource(String source) {
-		AtlasCacheEntry entry = sourceCache.get(source);
-		
-		if(entry==null || entry.refCounter < 1) {
+		if(AssetRegistry.getInstance().getRefCount(this, AssetType.ATLAS, source) < 1) {
 			loadSource(source);
 			EngineAssetManager.getInstance().finishLoading();
 		}
 	}
 	
 	private void disposeSource(String source) {
-		AtlasCacheEntry entry = sourceCache.get(source);
-
-		if (entry.refCounter == 1) {
-			EngineAssetManager.getInstance().disposeAtlas(source);
-		}
-
-		entry.refCounter--;
+		AssetRegistry.getInstance().releaseAtlas(this, source);
 	}
 	
 
@@ -472,11 +459,7 @@ public class AtlasRenderer implements ActorRenderer {
 
 	@Override
 	public void dispose() {
-		for (String key : sourceCache.keySet()) {
-			EngineAssetManager.getInstance().disposeAtlas(key);
-		}
-		
-		sourceCache.clear();
+		AssetRegistry.getInstance().releaseAll(this);
 	}
 
 	@Override
@@ -59,6 +59,10 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 	
 	/** State to know when the player is inside this actor to trigger the enter/exit verbs */ 
 	private boolean playerInside = false;
+	
+	/** The cells occupied in the scene ActorGrid. Managed by the grid */
+	transient int[] gridRange;
+	transient boolean gridDirty;
 
 	public String getId() {
 		return id;
@@ -74,6 +78,7 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 	
 	public void setLayer(String layer) {
 		this.layer = layer;
+		setDirty();
 	}
 	
 	public String getLayer() {
@@ -90,6 +95,7 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 
 	public void setInteraction(boolean interaction) {
 		this.interaction = interaction;
+		setDirty();
 	}
 
 	public boolean isVisible() {			
@@ -98,6 +104,7 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 
 	public void setVisible(boolean visible) {
 		this.visible = visible;
+		setDirty();
 		
 		if(isWalkObstacle() && scene!= null && scene.getPolygonalNavGraph() != null) {
 			if(visible)
@@ -109,6 +116,12 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 
 	public void setBbox(Polygon bbox) {
 		this.bbox = bbox;
+		
+		if(scene != null) {
+			scene.setDirty(true);
+			scene.updateActorBounds(this);
+			scene.updateActorZOrder(this);
+		}
 	}
 
 	public String getDesc() {
@@ -117,6 +130,7 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 
 	public void setDesc(String desc) {
 		this.desc = desc;
+		setDirty();
 	}
 
 	public VerbManager getVerbManager() {
@@ -127,6 +141,15 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 		scene = s;
 	}
 	
+	/**
+	 * Marks the owner scene as modified since the chapter was loaded, so it is
+	 * included in the saved game.
+	 */
+	protected void setDirty() {
+		if(scene != null)
+			scene.setDirty(true);
+	}
+
 	public Scene getScene() {
 		return scene;
 	}
@@ -134,21 +157,25 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 	public void update(float delta) {
 		BaseActor player = scene.getPlayer();
 		if(isVisible() && player != null) {
-			boolean hit = hit(player.getX(), player.getY());
+			boolean hit = scene.mayContain(this, player.getX(), player.getY()) && hit(player.getX(), player.getY());
 			if(!hit && playerInside) {
 				// the player leaves
 				playerInside = false;
 				
 				Verb v = getVerb("exit");
-				if(v!=null)
+				if(v!=null) {
+					setDirty();
 					v.run();
+				}
 			} else if(hit && !playerInside){
 				// the player enters
 				playerInside = true;
 				
 				Verb v = getVerb("enter");
-				if(v!=null)
-					v.run();				
+				if(v!=null) {
+					setDirty();
+					v.run();
+				}				
 			}
 		}
 	}
@@ -162,10 +189,13 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 	}
 	
 	public void runVerb(String id) {
+		// the verb state and its callbacks are saved with the scene
+		setDirty();
 		verbs.runVerb(id, state, null);
 	}
 	
 	public void runVerb(String id, String target) {
+		setDirty();
 		verbs.runVerb(id, state, target);
 	}
 
@@ -209,6 +239,7 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 			customProperties = new HashMap<String, String>();
 		
 		customProperties.put(name, value);
+		setDirty();
 	}
 	
 	public String getCustomProperty(String name) {
@@ -244,6 +275,7 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 	
 	public void setZIndex(float z) {
 		zIndex = z;
+		setDirty();
 	}
 
 	public String getState() {
@@ -252,6 +284,7 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 
 	public void setState(String state) {
 		this.state = state;
+		setDirty();
 	}
 	
 	public Dialog getDialog(String dialog) {
@@ -263,6 +296,7 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 			dialogs = new HashMap<String, Dialog> ();
 		
 		dialogs.put(id, d);
+		d.setOwner(this);
 	}
 	
 	public float getX() {
@@ -279,12 +313,16 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 
 	public void setWalkObstacle(boolean isWalkObstacle) {
 		this.isWalkObstacle = isWalkObstacle;
+		setDirty();
 	}
 
 	public void setPosition(float x, float y) {
 		boolean inNavGraph = false;
+		float oldY = bbox.getY();
 		
-		if(isWalkObstacle() && scene != null && scene.getPolygonalNavGraph() != null) {
+		// Only moved obstacles update the graph
+		if(isWalkObstacle() && scene != null && scene.getPolygonalNavGraph() != null
+				&& (x != bbox.getX() || y != bbox.getY())) {
 			inNavGraph = scene.getPolygonalNavGraph().removeDinamicObstacle(bbox);
 		}
 		
@@ -293,6 +331,14 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 		if(inNavGraph) {
 			scene.getPolygonalNavGraph().addDinamicObstacle(bbox);
 		}
+		
+		if(scene != null) {
+			scene.setDirty(true);
+			scene.updateActorBounds(this);
+			
+			if(oldY != y)
+				scene.updateActorZOrder(this);
+		}
 	}
 	
 	@Override
@@ -383,6 +429,11 @@ public class BaseActor implements Comparable<BaseActor>, Serializable, AssetCons
 		customProperties = json.readValue("customProperties", HashMap.class, String.class, jsonData);
 		dialogs = json.readValue("dialogs", HashMap.class, Dialog.class, jsonData);
 		
+		if(dialogs != null) {
+			for(Dialog d:dialogs.values())
+				d.setOwner(this);
+		}
+		
 		isWalkObstacle = json.readValue("isWalkObstacle", Boolean.class, jsonData);
 		layer = json.readValue("layer", String.class, jsonData);
 		playerInside = json.readValue("playerInside", Boolean.class, jsonData);
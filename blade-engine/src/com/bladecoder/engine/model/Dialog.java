@@ -36,6 +36,8 @@ public class Dialog implements Serializable   {
 	private String id;
 	private String actor;
 	
+	transient private BaseActor owner;
+	
 	public String getId() {
 		return id;
 	}
@@ -52,6 +54,19 @@ public class Dialog implements Serializable   {
 		this.actor = actor;
 	}
 	
+	/**
+	 * Sets the actor that contains the dialog. Changes in the dialog mark the
+	 * actor scene as dirty.
+	 */
+	public void setOwner(BaseActor owner) {
+		this.owner = owner;
+	}
+	
+	void setDirty() {
+		if(owner != null)
+			owner.setDirty();
+	}
+	
 	public void selectOption(int i) {
 		
 		currentOption = getVisibleOptions().get(i);
@@ -74,10 +89,13 @@ public class Dialog implements Serializable   {
 			else
 				currentOption = findSerOption(next);
 		}
+		
+		setDirty();
 	}
 	
 	public void addOption(DialogOption o) {
 		options.add(o);
+		o.setDialog(this);
 	}
 	
 	public boolean ended() {
@@ -106,6 +124,7 @@ public class Dialog implements Serializable   {
 	
 	public void reset() {
 		currentOption = null;
+		setDirty();
 	}
 	
 	public int getNumVisibleOptions() {
@@ -120,6 +139,7 @@ public class Dialog implements Serializable   {
 	
 	public void setCurrentOption(DialogOption o) {
 		currentOption = o;
+		setDirty();
 	}
 	
 	public DialogOption getCurrentOption() {
@@ -156,6 +176,7 @@ public class Dialog implements Serializable   {
 	private void setParents(ArrayList<DialogOption> list, DialogOption parent) {
 		for(DialogOption o:list) {
 			o.setParent(parent);
+			o.setDialog(parent == null ? this : null);
 			setParents(o.getOptions(), o);
 		}		
 	}
@@ -23,6 +23,9 @@ public class DialogOption {
 	ArrayList<DialogOption> options = new ArrayList<DialogOption>();
 	
 	transient private DialogOption parent;
+	
+	/** The owner dialog. Only set in the root options */
+	transient private Dialog dialog;
 		
 	private String text;
 	private String responseText;
@@ -43,6 +46,18 @@ public class DialogOption {
 
 	public void setVisible(boolean visible) {
 		this.visible = visible;
+		
+		DialogOption root = this;
+		
+		while(root.parent != null)
+			root = root.parent;
+		
+		if(root.dialog != null)
+			root.dialog.setDirty();
+	}
+	
+	void setDialog(Dialog dialog) {
+		this.dialog = dialog;
 	}
 
 
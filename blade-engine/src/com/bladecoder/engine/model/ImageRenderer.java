@@ -29,6 +29,8 @@ import com.bladecoder.engine.actions.ActionCallback;
 import com.bladecoder.engine.actions.ActionCallbackQueue;
 import com.bladecoder.engine.anim.AnimationDesc;
 import com.bladecoder.engine.anim.Tween;
+import com.bladecoder.engine.assets.AssetRegistry;
+import com.bladecoder.engine.assets.AssetRegistry.AssetType;
 import com.bladecoder.engine.assets.EngineAssetManager;
 import com.bladecoder.engine.i18n.I18N;
 import com.bladecoder.engine.util.EngineLogger;
@@ -43,17 +45,16 @@ public class ImageRenderer implements ActorRenderer {
 
 	private AnimationDesc currentAnimation;
 
-	private ImageCacheEntry currentSource;
+	private Texture tex;
 	private boolean flipX;
 	
-	private final HashMap<String, ImageCacheEntry> sourceCache = new HashMap<String, ImageCacheEntry>();
+	/**
+	 * Texture filenames resolved when acquired. I18N sources are released
+	 * with the same filename even if the locale changes.
+	 */
+	private final HashMap<String, String> loadedSources = new HashMap<String, String>();
+	
 	private Polygon bbox;
-
-	class ImageCacheEntry {
-		int refCounter;
-		
-		Texture tex;
-	}	
 	
 	public ImageRenderer() {
 		
@@ -107,35 +108,42 @@ public class ImageRenderer implements ActorRenderer {
 		
 		x = x - getWidth() / 2 * scale; // SET THE X ORIGIN TO THE CENTER OF THE SPRITE
 
-		if (currentSource == null || currentSource.tex == null) {
+		if (tex == null) {
 			RectangleRenderer.draw(batch, x, y, getWidth() * scale, getHeight()
 					* scale, Color.RED);
 			return;
 		}
 
 		if (!flipX) {
-			batch.draw(currentSource.tex, x, y, currentSource.tex.getWidth() *  scale,
-					currentSource.tex.getHeight() * scale);
+			batch.draw(tex, x, y, tex.getWidth() *  scale,
+					tex.getHeight() * scale);
 		} else {
-			batch.draw(currentSource.tex, x, y, -currentSource.tex.getWidth() *  scale,
-					currentSource.tex.getHeight() * scale);
+			batch.draw(tex, x, y, -tex.getWidth() *  scale,
+					tex.getHeight() * scale);
 		}
 	}
 
+	/**
+	 * @return The current texture or null if not loaded.
+	 */
+	public Texture getTexture() {
+		return tex;
+	}
+
 	@Override
 	public float getWidth() {
-		if (currentSource == null || currentSource.tex == null)
+		if (tex == null)
 			return 200;
 
-		return currentSource.tex.getWidth();
+		return tex.getWidth();
 	}
 
 	@Override
 	public float getHeight() {
-		if (currentSource == null || currentSource.tex == null)
+		if (tex == null)
 			return 200;
 
-		return currentSource.tex.getHeight();
+		return tex.getHeight();
 	}
 
 	@Override
@@ -167,24 +175,16 @@ public class ImageRenderer implements ActorRenderer {
 			disposeSource(currentAnimation.source);
 
 		currentAnimation = fa;
-		currentSource = sourceCache.get(fa.source);
 
 		// If the source is not loaded. Load it.
-		if (currentSource == null || currentSource.refCounter < 1) {
-			loadSource(fa.source);
-			EngineAssetManager.getInstance().finishLoading();
-
-			retrieveSource(fa.source);
+		tex = retrieveSource(fa.source);
 
-			currentSource = sourceCache.get(fa.source);
+		if (tex == null) {
+			EngineLogger.error("Could not load AnimationDesc: " + id);
+			currentAnimation = null;
 
-			if (currentSource == null) {
-				EngineLogger.error("Could not load AnimationDesc: " + id);
-				currentAnimation = null;
-
-				computeBbox();
-				return;
-			}
+			computeBbox();
+			return;
 		}
 		
 		computeBbox();
@@ -317,51 +317,53 @@ public class ImageRenderer implements ActorRenderer {
 		startAnimation(sb.toString(), Tween.FROM_FA, 1, null);
 	}
 	
+	private String getTextureFilename(String source) {
+		// I18N for images
+		if(source.charAt(0) == '@')
+			source = I18N.getString(source.substring(1));
+		
+		return EngineAssetManager.IMAGE_DIR + source;
+	}
+	
 	private void loadSource(String source) {
-		ImageCacheEntry entry = sourceCache.get(source);
+		String filename = loadedSources.get(source);
 
-		if (entry == null) {
-			entry = new ImageCacheEntry();
-			sourceCache.put(source, entry);
+		if (filename == null) {
+			filename = getTextureFilename(source);
+			loadedSources.put(source, filename);
 		}
 
-		if (entry.refCounter == 0) {
-			// I18N for images
-			if(source.charAt(0) == '@')
-			source = I18N.getString(source.substring(1));
-			EngineAssetManager.getInstance().loadTexture(EngineAssetManager.IMAGE_DIR + source);
-		}
-
-		entry.refCounter++;
+		AssetRegistry.getInstance().acquireTexture(this, filename);
 	}
 
-	private void retrieveSource(String source) {
-		ImageCacheEntry entry = sourceCache.get(source);
+	private Texture retrieveSource(String source) {
+		String filename = loadedSources.get(source);
+
+		if (filename == null)
+			filename = getTextureFilename(source);
 
-		if (entry == null || entry.refCounter < 1) {
+		if (AssetRegistry.getInstance().getRefCount(this, AssetType.TEXTURE, filename) < 1) {
 			loadSource(source);
+			filename = loadedSources.get(source);
 			EngineAssetManager.getInstance().finishLoading();
-			entry = sourceCache.get(source);
 		}
 
-		if (entry.tex == null) {
-			// I18N for images
-			if(source.charAt(0) == '@')
-				source = I18N.getString(source.substring(1));
-			
-			entry.tex = EngineAssetManager.getInstance().getTexture(EngineAssetManager.IMAGE_DIR + source);
-		}
+		if (!EngineAssetManager.getInstance().isLoaded(filename))
+			return null;
+
+		return EngineAssetManager.getInstance().getTexture(filename);
 	}
 
 	private void disposeSource(String source) {
-		ImageCacheEntry entry = sourceCache.get(source);
+		String filename = loadedSources.get(source);
 
-		if (entry.refCounter == 1) {
-			EngineAssetManager.getInstance().disposeTexture(entry.tex);
-			entry.tex = null;
-		}
+		if (filename == null)
+			return;
 
-		entry.refCounter--;
+		AssetRegistry.getInstance().releaseTexture(this, filename);
+
+		if (AssetRegistry.getInstance().getRefCount(this, AssetType.TEXTURE, filename) < 1)
+			loadedSources.remove(source);
 	}
 
 	@Override
@@ -384,15 +386,8 @@ public class ImageRenderer implements ActorRenderer {
 	@Override
 	public void retrieveAssets() {
 
-		for (String key : sourceCache.keySet()) {
-			if (sourceCache.get(key).refCounter > 0)
-				retrieveSource(key);
-		}
-
 		if (currentAnimation != null) {
-			ImageCacheEntry entry = sourceCache
-					.get(currentAnimation.source);
-			currentSource = entry;
+			tex = retrieveSource(currentAnimation.source);
 		} else if (initAnimation != null) {
 			startAnimation(initAnimation, Tween.FROM_FA, 1, null);
 		}
@@ -402,12 +397,9 @@ public class ImageRenderer implements ActorRenderer {
 
 	@Override
 	public void dispose() {
-		for (ImageCacheEntry entry : sourceCache.values()) {
-			EngineAssetManager.getInstance().disposeTexture(entry.tex);
-		}
-
-		sourceCache.clear();
-		currentSource = null;
+		AssetRegistry.getInstance().releaseAll(this);
+		loadedSources.clear();
+		tex = null;
 	}
 
 	@Override
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.model;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.Texture.TextureWrap;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.BufferUtils;
+
+/**
+ * Pool of render targets for the 3D actors. Several actors share one big
+ * FrameBuffer (page) and all the pending targets are rendered together, page
+ * by page, to minimize the FrameBuffer switches.
+ * 
+ * @author rgarcia
+ */
+public class RenderTargetPool {
+	public final static int PAGE_SIZE = 1024;
+	private final static int PADDING = 2;
+	private final static Format FRAMEBUFFER_FORMAT = Format.RGBA8888;
+
+	private static final ArrayList<Page> pages = new ArrayList<Page>();
+
+	private static final IntBuffer VIEWPORT_RESULTS = BufferUtils.newIntBuffer(16);
+
+	/** Number of targets rendered in the last flush. For debug purposes. */
+	private static int lastRendered = 0;
+
+	/**
+	 * A region of a page where an actor is rendered.
+	 */
+	public static class RenderTarget {
+		final Page page;
+		final Rectangle rect;
+		final TextureRegion region;
+		final Sprite3DRenderer owner;
+
+		boolean dirty = true;
+
+		RenderTarget(Page page, Rectangle rect, Sprite3DRenderer owner) {
+			this.page = page;
+			this.rect = rect;
+			this.owner = owner;
+
+			region = new TextureRegion(page.fb.getColorBufferTexture(), (int) rect.x, (int) rect.y,
+					(int) rect.width, (int) rect.height);
+			region.flip(false, true);
+		}
+
+		public TextureRegion getRegion() {
+			return region;
+		}
+
+		public boolean isDirty() {
+			return dirty;
+		}
+
+		public void setDirty() {
+			dirty = true;
+		}
+	}
+
+	static class Page {
+		final FrameBuffer fb;
+		final int size;
+
+		final ArrayList<RenderTarget> targets = new ArrayList<RenderTarget>();
+
+		/** Free rects from released targets */
+		final ArrayList<Rectangle> free = new ArrayList<Rectangle>();
+
+		// Shelf packing
+		int shelfX = 0, shelfY = 0, shelfHeight = 0;
+
+		Page(int size) {
+			this.size = size;
+
+			fb = new FrameBuffer(FRAMEBUFFER_FORMAT, size, size, true) {
+				@Override
+				protected void setupTexture() {
+					colorTexture = new Texture(width, height, format);
+					colorTexture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+					colorTexture.setWrap(TextureWrap.ClampToEdge, TextureWrap.ClampToEdge);
+				}
+			};
+		}
+
+		Rectangle alloc(int width, int height) {
+			// reuse a released rect
+			for (int i = 0; i < free.size(); i++) {
+				Rectangle r = free.get(i);
+
+				if (r.width >= width && r.height >= height) {
+					free.remove(i);
+					return r.setSize(width, height);
+				}
+			}
+
+			if (shelfX + width > size) {
+				shelfX = 0;
+				shelfY += shelfHeight + PADDING;
+				shelfHeight = 0;
+			}
+
+			if (shelfX + width > size || shelfY + height > size)
+				return null;
+
+			Rectangle r = new Rectangle(shelfX, shelfY, width, height);
+
+			shelfX += width + PADDING;
+			shelfHeight = Math.max(shelfHeight, height);
+
+			return r;
+		}
+	}
+
+	/**
+	 * Reserves a region of the pool for the renderer.
+	 */
+	public static RenderTarget obtain(Sprite3DRenderer owner, int width, int height) {
+		for (Page p : pages) {
+			Rectangle r = p.alloc(width, height);
+
+			if (r != null)
+				return add(p, r, owner);
+		}
+
+		// Bigger targets than the page size get its own page
+		Page p = new Page(Math.max(PAGE_SIZE, Math.max(width, height)));
+		pages.add(p);
+
+		return add(p, p.alloc(width, height), owner);
+	}
+
+	private static RenderTarget add(Page p, Rectangle r, Sprite3DRenderer owner) {
+		RenderTarget t = new RenderTarget(p, r, owner);
+		p.targets.add(t);
+
+		return t;
+	}
+
+	/**
+	 * Releases the region. The page is disposed when it has no more targets.
+	 */
+	public static void free(RenderTarget t) {
+		Page p = t.page;
+
+		if (!p.targets.remove(t))
+			return;
+
+		if (p.targets.isEmpty()) {
+			p.fb.dispose();
+			pages.remove(p);
+		} else {
+			p.free.add(t.rect);
+		}
+	}
+
+	/**
+	 * Renders all the dirty targets. The shadow maps are generated first to
+	 * not interrupt the page FrameBuffers.
+	 */
+	public static void flush() {
+		lastRendered = 0;
+
+		for (Page p : pages) {
+			for (RenderTarget t : p.targets) {
+				if (t.dirty) {
+					t.owner.genRenderTargetShadow();
+					lastRendered++;
+				}
+			}
+		}
+
+		if (lastRendered == 0)
+			return;
+
+		Gdx.gl20.glGetIntegerv(GL20.GL_VIEWPORT, VIEWPORT_RESULTS);
+
+		for (Page p : pages) {
+			boolean bound = false;
+
+			for (RenderTarget t : p.targets) {
+				if (!t.dirty)
+					continue;
+
+				if (!bound) {
+					p.fb.begin();
+					Gdx.gl.glEnable(GL20.GL_SCISSOR_TEST);
+					bound = true;
+				}
+
+				int x = (int) t.rect.x, y = (int) t.rect.y, w = (int) t.rect.width, h = (int) t.rect.height;
+
+				Gdx.gl.glViewport(x, y, w, h);
+				Gdx.gl.glScissor(x, y, w, h);
+				Gdx.gl.glClearColor(0, 0, 0, 0);
+				Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT | GL20.GL_DEPTH_BUFFER_BIT);
+
+				t.owner.renderTarget();
+				t.dirty = false;
+			}
+
+			if (bound) {
+				Gdx.gl.glDisable(GL20.GL_SCISSOR_TEST);
+				p.fb.end(VIEWPORT_RESULTS.get(0), VIEWPORT_RESULTS.get(1), VIEWPORT_RESULTS.get(2),
+						VIEWPORT_RESULTS.get(3));
+			}
+		}
+	}
+
+	public static int getNumPages() {
+		return pages.size();
+	}
+
+	public static int getLastRendered() {
+		return lastRendered;
+	}
+
+	/**
+	 * Disposes all the pages. The targets obtained are no longer valid.
+	 */
+	public static void dispose() {
+		for (Page p : pages)
+			p.fb.dispose();
+
+		pages.clear();
+	}
+}
@@ -34,6 +34,7 @@ import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.Json.Serializable;
 import com.badlogic.gdx.utils.JsonValue;
 import com.bladecoder.engine.assets.AssetConsumer;
+import com.bladecoder.engine.assets.AssetRegistry;
 import com.bladecoder.engine.assets.EngineAssetManager;
 import com.bladecoder.engine.pathfinder.NavNode;
 import com.bladecoder.engine.polygonalpathfinder.NavNodePolygonal;
@@ -58,6 +59,9 @@ public class Scene implements Serializable,
 	 */
 	private List<SceneLayer> layers = new ArrayList<SceneLayer>();
 	
+	/** Spatial index over the actor bboxes for hit testing */
+	transient private final ActorGrid grid = new ActorGrid();
+	
 	private SceneCamera camera = new SceneCamera();
 	
 	private Array<AtlasRegion> background;
@@ -102,10 +106,24 @@ public class Scene implements Serializable,
 	 * logic
 	 */
 	private HashMap<String, String> customProperties;
+	
+	/**
+	 * True when the scene has been modified since the chapter was loaded. Only
+	 * dirty scenes are stored in the saved game.
+	 */
+	transient private boolean dirty = false;
 
 	public Scene() {	
 	}
 	
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	public void setDirty(boolean dirty) {
+		this.dirty = dirty;
+	}
+	
 	public String getId() {
 		return id;
 	}
@@ -120,6 +138,7 @@ public class Scene implements Serializable,
 	
 	public void setState(String s) {
 		state = s;
+		dirty = true;
 	}
 	
 	public List<SceneLayer> getLayers() {
@@ -145,6 +164,7 @@ public class Scene implements Serializable,
 			customProperties = new HashMap<String, String>();
 		
 		customProperties.put(name, value);
+		dirty = true;
 	}
 	
 	public String getCustomProperty(String name) {
@@ -203,6 +223,8 @@ public class Scene implements Serializable,
 	}
 	
 	public void runVerb(String id) {
+		// the verb state and its callbacks are saved with the scene
+		dirty = true;
 		verbs.runVerb(id, state, null);
 	}
 
@@ -352,6 +374,50 @@ public class Scene implements Serializable,
 		}
 		
 		layer.add(actor);
+		
+		grid.add(actor);
+		dirty = true;
+	}
+	
+	/**
+	 * Must be called when the actor moves or changes its bbox to keep the hit
+	 * test index updated.
+	 */
+	public void updateActorBounds(BaseActor a) {
+		grid.invalidate(a);
+	}
+	
+	/**
+	 * Must be called when the actor changes its 'y' position to reorder its
+	 * layer in the next update.
+	 */
+	public void updateActorZOrder(BaseActor a) {
+		SceneLayer layer = getLayer(a.getLayer());
+		
+		if(layer != null)
+			layer.setDirty();
+	}
+	
+	/**
+	 * @return The number of times that the dynamic layers have been reordered.
+	 *         For debug purposes.
+	 */
+	public int getResortCount() {
+		int count = 0;
+		
+		for(SceneLayer l: layers)
+			count += l.getResortCount();
+		
+		return count;
+	}
+	
+	/**
+	 * Fast check to discard actors before doing the polygon hit test.
+	 * 
+	 * @return false if the actor can't contain the point.
+	 */
+	public boolean mayContain(BaseActor a, float x, float y) {
+		return grid.mayContain(a, x, y);
 	}
 
 	public void setBackground(String bgAtlas, String bgId, String lightMapAtlas, String lightMapId) {
@@ -363,22 +429,44 @@ public class Scene implements Serializable,
 
 	public BaseActor getActorAt(float x, float y) {
 		
-		for(SceneLayer layer:layers) {
+		// Only the actors in the grid cell can contain the point
+		List<BaseActor> candidates = grid.getActorsAt(x, y);
+		
+		if(candidates == null)
+			return null;
+		
+		BaseActor result = null;
+		int resultLayer = 0;
+		int resultPos = 0;
+		
+		for (int i = 0; i < candidates.size(); i++) {
+			BaseActor a = candidates.get(i);
+
+			if (!a.hasInteraction() || !a.hit(x, y))
+				continue;
+			
+			SceneLayer layer = getLayer(a.getLayer());
 			
-			if(!layer.isVisible())
+			if(layer == null || !layer.isVisible())
 				continue;
 			
-			// Obtain actors in reverse (close to camera)
-			for (int i = layer.getActors().size() - 1; i >= 0; i--) {
-				BaseActor a = layer.getActors().get(i);
-
-				if (a.hasInteraction() && a.hit(x, y)) {
-					return a;
-				}
+			// The first layer has priority. Inside the layer, the last actor
+			// (close to camera) has priority.
+			int l = layers.indexOf(layer);
+			
+			if(result != null && l > resultLayer)
+				continue;
+			
+			int pos = layer.getActors().indexOf(a);
+			
+			if(result == null || l < resultLayer || pos > resultPos) {
+				result = a;
+				resultLayer = l;
+				resultPos = pos;
 			}
 		}
 
-		return null;
+		return result;
 	}
 
 	public void setPlayer(SpriteActor a) {
@@ -388,6 +476,8 @@ public class Scene implements Serializable,
 		} else {
 			player = null;
 		}
+		
+		dirty = true;
 	}
 
 	public SpriteActor getPlayer() {
@@ -418,11 +508,21 @@ public class Scene implements Serializable,
 		SceneLayer layer = getLayer(a.getLayer());
 		layer.getActors().remove(a);
 		
+		grid.remove(a);
+		
 		if(a.isWalkObstacle() && polygonalNavGraph != null)
 			polygonalNavGraph.removeDinamicObstacle(a.getBBox());
 		
 		a.setScene(null);
-			
+		dirty = true;
+	}
+
+	public String getBackgroundAtlas() {
+		return backgroundAtlas;
+	}
+
+	public String getLightMapAtlas() {
+		return lightMapAtlas;
 	}
 
 	public Array<AtlasRegion> getBackground() {
@@ -455,12 +555,12 @@ public class Scene implements Serializable,
 	public void loadAssets() {
 
 		if (backgroundAtlas != null && !backgroundAtlas.isEmpty()) {			
-			EngineAssetManager.getInstance().loadAtlas(backgroundAtlas);
+			AssetRegistry.getInstance().acquireAtlas(this, backgroundAtlas);
 		}
 
 		// LOAD LIGHT MAP
 		if (lightMapAtlas != null && !lightMapAtlas.isEmpty()) {
-			EngineAssetManager.getInstance().loadAtlas(lightMapAtlas);
+			AssetRegistry.getInstance().acquireAtlas(this, lightMapAtlas);
 		}
 
 		if (musicFilename != null)
@@ -532,14 +632,8 @@ public class Scene implements Serializable,
 	@Override
 	public void dispose() {
 
-		if (backgroundAtlas != null && !backgroundAtlas.isEmpty()) {			
-			EngineAssetManager.getInstance().disposeAtlas(backgroundAtlas);
-		}
-
-		// LOAD LIGHT MAP
-		if (lightMapAtlas != null && !lightMapAtlas.isEmpty()) {
-			EngineAssetManager.getInstance().disposeAtlas(lightMapAtlas);
-		}
+		// DISPOSE BACKGROUND AND LIGHT MAP
+		AssetRegistry.getInstance().releaseAll(this);
 
 		// orderedActors.clear();
 
@@ -626,6 +720,8 @@ public class Scene implements Serializable,
 			
 			SceneLayer layer = getLayer(actor.getLayer());
 			layer.add(actor);
+			
+			grid.add(actor);
 		}
 		
 		orderLayersByZIndex();
@@ -657,5 +753,8 @@ public class Scene implements Serializable,
 		
 		depthVector = json.readValue("depthVector", Vector2.class, jsonData);
 		polygonalNavGraph = json.readValue("polygonalNavGraph", PolygonalNavGraph.class, jsonData);
+		
+		// a restored scene differs from the chapter, keep it in the next saves
+		dirty = true;
 	}
 }
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.model;
+
+import java.util.ArrayList;
+
+import com.bladecoder.engine.assets.AssetRegistry;
+import com.bladecoder.engine.util.EngineLogger;
+
+/**
+ * Keeps the assets of the last visited scenes loaded to improve performance
+ * when returning to them.
+ * 
+ * Scenes are disposed in LRU order when the number of cached scenes or the
+ * texture memory referenced in the asset registry exceeds the limits.
+ */
+public class SceneCache {
+	private int maxScenes;
+
+	/** Max. texture memory in bytes. 0 means no limit */
+	private long memoryBudget;
+
+	/** Cached scenes in LRU order. The last one is the most recently used */
+	private final ArrayList<Scene> scenes = new ArrayList<Scene>();
+
+	public SceneCache(int maxScenes, long memoryBudget) {
+		this.maxScenes = maxScenes;
+		this.memoryBudget = memoryBudget;
+	}
+
+	public int getMaxScenes() {
+		return maxScenes;
+	}
+
+	public void setMaxScenes(int maxScenes) {
+		this.maxScenes = maxScenes;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Adds a scene with its assets loaded to the cache. If the cache is
+	 * disabled the scene is disposed.
+	 */
+	public void add(Scene s) {
+		scenes.remove(s);
+		scenes.add(s);
+
+		while (scenes.size() > maxScenes)
+			disposeLRU();
+	}
+
+	/**
+	 * Removes the scene from the cache.
+	 * 
+	 * @return true if the scene was in the cache, so its assets are loaded.
+	 */
+	public boolean remove(Scene s) {
+		return scenes.remove(s);
+	}
+
+	public boolean contains(Scene s) {
+		return scenes.contains(s);
+	}
+
+	/**
+	 * Disposes cached scenes in LRU order until the texture memory is under
+	 * the budget.
+	 */
+	public void evict() {
+		if (memoryBudget <= 0)
+			return;
+
+		while (scenes.size() > 0 && AssetRegistry.getInstance().getResidentBytes() > memoryBudget)
+			disposeLRU();
+	}
+
+	/**
+	 * Disposes all the cached scenes.
+	 */
+	public void clear() {
+		for (Scene s : scenes)
+			s.dispose();
+
+		scenes.clear();
+	}
+
+	private void disposeLRU() {
+		Scene s = scenes.remove(0);
+
+		EngineLogger.debug("SCENE CACHE: Disposing scene " + s.getId());
+
+		s.dispose();
+	}
+}
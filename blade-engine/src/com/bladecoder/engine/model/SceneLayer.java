@@ -1,11 +1,12 @@
 package com.bladecoder.engine.model;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.bladecoder.engine.util.StatsSpriteBatch;
 
 public class SceneLayer {
 	private String name;
@@ -14,23 +15,202 @@ public class SceneLayer {
 	
 	transient private final List<BaseActor> actors = new ArrayList<BaseActor>();
 	
+	/**
+	 * True when an actor has been added or has moved in the 'y' axis since the
+	 * last sort.
+	 */
+	transient private boolean dirty = true;
+	
+	/** Number of sorts that changed the actor order. For debug purposes. */
+	transient private int resortCount = 0;
+	
+	/** Render calls and texture switches in the last draw. For debug purposes. */
+	transient private int renderCalls = 0;
+	transient private int textureSwitches = 0;
+	
+	/**
+	 * When true, consecutive actors with the same texture are drawn together
+	 * if they don't overlap the actors between them.
+	 */
+	private static boolean textureBatching = false;
+	
+	/** Max. number of actors searched ahead for the same texture */
+	private static final int BATCHING_LOOKAHEAD = 8;
+	
+	transient private final ArrayList<SpriteActor> pending = new ArrayList<SpriteActor>();
+	
+	private static final Comparator<BaseActor> ZINDEX_COMPARATOR = new Comparator<BaseActor>() {
+
+		@Override
+		public int compare(BaseActor a1, BaseActor a2) {
+			return (int) (a1.getZIndex() - a2.getZIndex());
+		}
+	};
+	
 	public void update() {
-		if(dynamic && visible)
-			Collections.sort(actors);
+		if(dynamic && visible && dirty) {
+			if(sort(null) > 0)
+				resortCount++;
+			
+			dirty = false;
+		}
+	}
+	
+	/**
+	 * Insertion sort. The actor order hardly changes between frames, so the
+	 * list is almost sorted and this is O(n) without allocating memory.
+	 * 
+	 * @param c
+	 *            The comparator or null to use the natural order.
+	 * @return The number of actors moved.
+	 */
+	private int sort(Comparator<BaseActor> c) {
+		int moved = 0;
+		
+		for(int i = 1; i < actors.size(); i++) {
+			BaseActor a = actors.get(i);
+			int j = i - 1;
+			
+			while(j >= 0 && (c == null ? actors.get(j).compareTo(a) : c.compare(actors.get(j), a)) > 0) {
+				actors.set(j + 1, actors.get(j));
+				j--;
+			}
+			
+			if(j + 1 != i) {
+				actors.set(j + 1, a);
+				moved++;
+			}
+		}
+		
+		return moved;
+	}
+	
+	/**
+	 * Must be called when an actor of the layer changes its 'y' position.
+	 */
+	public void setDirty() {
+		dirty = true;
+	}
+	
+	public int getResortCount() {
+		return resortCount;
 	}
 	
 	public void draw(SpriteBatch spriteBatch) {
 		if(!visible)
 			return;
 		
+		int rc = spriteBatch.renderCalls;
+		int ts = spriteBatch instanceof StatsSpriteBatch ? ((StatsSpriteBatch) spriteBatch).textureSwitches : 0;
+		
+		if(textureBatching) {
+			drawBatchingTextures(spriteBatch);
+		} else {
+			for (BaseActor a : actors) {
+				if(a instanceof SpriteActor)
+					((SpriteActor)a).draw(spriteBatch);
+			}
+		}
+		
+		renderCalls = spriteBatch.renderCalls - rc;
+		
+		if(spriteBatch instanceof StatsSpriteBatch)
+			textureSwitches = ((StatsSpriteBatch) spriteBatch).textureSwitches - ts;
+	}
+	
+	/**
+	 * Draws the actors in z order but, after every actor, searches ahead for
+	 * an actor with the same texture that can be drawn before the actors
+	 * between them because it doesn't overlap them.
+	 */
+	private void drawBatchingTextures(SpriteBatch spriteBatch) {
+		pending.clear();
+		
 		for (BaseActor a : actors) {
-			if(a instanceof SpriteActor)
-				((SpriteActor)a).draw(spriteBatch);
+			if(a instanceof SpriteActor && a.isVisible())
+				pending.add((SpriteActor)a);
+		}
+		
+		Texture last = null;
+		
+		while(!pending.isEmpty()) {
+			int next = 0;
+			
+			if(last != null) {
+				int max = Math.min(pending.size(), BATCHING_LOOKAHEAD);
+				
+				for(int i = 1; i < max; i++) {
+					SpriteActor a = pending.get(i);
+					
+					if(getTexture(a) == last && !overlapsPrevious(i)) {
+						next = i;
+						break;
+					}
+				}
+			}
+			
+			SpriteActor a = pending.remove(next);
+			a.draw(spriteBatch);
+			last = getTexture(a);
+		}
+	}
+	
+	/**
+	 * @return true if the pending actor overlaps any pending actor before it.
+	 */
+	private boolean overlapsPrevious(int index) {
+		SpriteActor a = pending.get(index);
+		
+		for(int i = 0; i < index; i++) {
+			if(overlaps(a, pending.get(i)))
+				return true;
 		}
+		
+		return false;
+	}
+	
+	private static boolean overlaps(SpriteActor a, SpriteActor b) {
+		// the sprites are drawn centered in the actor position
+		float ax = a.getX() - a.getWidth() / 2;
+		float bx = b.getX() - b.getWidth() / 2;
+		
+		return ax < bx + b.getWidth() && bx < ax + a.getWidth() && a.getY() < b.getY() + b.getHeight()
+				&& b.getY() < a.getY() + a.getHeight();
+	}
+	
+	/**
+	 * @return The texture that the actor will use to draw or null if unknown.
+	 */
+	private static Texture getTexture(SpriteActor a) {
+		ActorRenderer r = a.getRenderer();
+		
+		if(r instanceof AtlasRenderer)
+			return ((AtlasRenderer)r).getTexture();
+		else if(r instanceof ImageRenderer)
+			return ((ImageRenderer)r).getTexture();
+		
+		return null;
+	}
+	
+	public static void setTextureBatching(boolean v) {
+		textureBatching = v;
+	}
+	
+	public static boolean isTextureBatching() {
+		return textureBatching;
+	}
+	
+	public int getRenderCalls() {
+		return renderCalls;
+	}
+	
+	public int getTextureSwitches() {
+		return textureSwitches;
 	}
 	
 	public void add(BaseActor actor) {
 		actors.add(actor);
+		dirty = true;
 	}
 
 	public String getName() {
@@ -47,6 +227,7 @@ public class SceneLayer {
 
 	public void setVisible(boolean visible) {
 		this.visible = visible;
+		dirty = true;
 	}
 
 	public boolean isDynamic() {
@@ -55,6 +236,7 @@ public class SceneLayer {
 
 	public void setDynamic(boolean dynamic) {
 		this.dynamic = dynamic;
+		dirty = true;
 	}
 
 	public List<BaseActor> getActors() {
@@ -62,13 +244,7 @@ public class SceneLayer {
 	}
 
 	public void orderByZIndex() {
-		Collections.sort(actors, new Comparator<BaseActor>() {
-
-			@Override
-			public int compare(BaseActor a1, BaseActor a2) {
-				return (int) (a1.getZIndex() - a2.getZIndex());
-			}
-		});
+		sort(ZINDEX_COMPARATOR);
 	}
 
 	public void remove(BaseActor actor) {
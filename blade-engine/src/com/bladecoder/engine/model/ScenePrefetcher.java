@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.bladecoder.engine.actions.Action;
+import com.bladecoder.engine.actions.LeaveAction;
+import com.bladecoder.engine.actions.MoveToSceneAction;
+import com.bladecoder.engine.anim.AnimationDesc;
+import com.bladecoder.engine.assets.AssetRegistry;
+import com.bladecoder.engine.assets.AssetRegistry.AssetType;
+import com.bladecoder.engine.assets.EngineAssetManager;
+import com.bladecoder.engine.util.EngineLogger;
+
+/**
+ * Loads in background the atlases of the scenes that can be reached from the
+ * current scene.
+ * 
+ * The reachable scenes are obtained scanning the 'LeaveAction' and
+ * 'MoveToSceneAction' actions in the scene and actor verbs. Atlases are loaded
+ * in order of appearance until the memory budget is reached.
+ * 
+ * The prefetched atlases are referenced in the asset manager, so the scene
+ * will find them loaded when calling 'loadAssets()'.
+ */
+public class ScenePrefetcher {
+	/** Time in ms to load assets in every frame */
+	private static final int PREFETCH_TIME_SLICE = 4;
+
+	/** Max. texture memory used by the prefetched atlases */
+	private long memoryBudget;
+
+	private final ArrayList<String> prefetchedAtlases = new ArrayList<String>();
+	private final HashMap<String, Long> atlasSizes = new HashMap<String, Long>();
+
+	private boolean loading = false;
+
+	public ScenePrefetcher(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Starts loading the atlases of the scenes reachable from the current
+	 * scene. Atlases prefetched for the previous scene that are no longer
+	 * reachable are released.
+	 * 
+	 * Must be called after the current scene assets are retrieved.
+	 */
+	public void prefetch(Scene current, World world) {
+		ArrayList<String> targets = new ArrayList<String>();
+		ArrayList<String> atlases = new ArrayList<String>();
+
+		if (memoryBudget > 0) {
+			addTargets(current.getVerbManager(), targets);
+
+			for (BaseActor a : current.getActors().values())
+				addTargets(a.getVerbManager(), targets);
+
+			targets.remove(current.getId());
+
+			long used = 0;
+
+			for (String id : targets) {
+				Scene s = world.getScene(id);
+
+				if (s == null) {
+					EngineLogger.debug("PREFETCH: Scene not found: " + id);
+					continue;
+				}
+
+				used = addAtlases(s, atlases, used);
+			}
+
+			EngineLogger.debug("PREFETCH: " + targets + " ATLASES: " + atlases + " SIZE (KB): " + used / 1024);
+		}
+
+		AssetRegistry registry = AssetRegistry.getInstance();
+
+		// First reference the new atlases and later release the old ones, so
+		// atlases shared by both lists are never unloaded
+		for (String atlas : atlases) {
+			if (!prefetchedAtlases.contains(atlas)) {
+				registry.acquireAtlas(this, atlas);
+				loading = true;
+			}
+		}
+
+		for (String atlas : prefetchedAtlases) {
+			if (!atlases.contains(atlas))
+				registry.releaseAtlas(this, atlas);
+		}
+
+		prefetchedAtlases.clear();
+		prefetchedAtlases.addAll(atlases);
+	}
+
+	/**
+	 * Gives time to the asset manager to load the prefetched atlases. Must be
+	 * called every frame.
+	 */
+	public void update() {
+		if (loading)
+			loading = EngineAssetManager.getInstance().isLoading(PREFETCH_TIME_SLICE);
+	}
+
+	public boolean isLoading() {
+		return loading;
+	}
+
+	/**
+	 * Releases all the prefetched atlases.
+	 */
+	public void clear() {
+		AssetRegistry.getInstance().releaseAll(this);
+
+		prefetchedAtlases.clear();
+		loading = false;
+	}
+
+	private void addTargets(VerbManager vm, ArrayList<String> targets) {
+		for (Verb v : vm.getVerbs().values()) {
+			for (Action a : v.getActions()) {
+				String target = null;
+
+				if (a instanceof LeaveAction)
+					target = ((LeaveAction) a).getTargetScene();
+				else if (a instanceof MoveToSceneAction)
+					target = ((MoveToSceneAction) a).getTargetScene();
+
+				if (target != null && !target.isEmpty() && !targets.contains(target))
+					targets.add(target);
+			}
+		}
+	}
+
+	/**
+	 * Adds the atlases of the scene that fits in the memory budget.
+	 * 
+	 * @return the memory used after adding the scene atlases.
+	 */
+	private long addAtlases(Scene s, ArrayList<String> atlases, long used) {
+		used = addAtlas(s.getBackgroundAtlas(), atlases, used);
+		used = addAtlas(s.getLightMapAtlas(), atlases, used);
+
+		for (BaseActor a : s.getActors().values()) {
+			if (!(a instanceof SpriteActor) || !a.isVisible())
+				continue;
+
+			ActorRenderer r = ((SpriteActor) a).getRenderer();
+
+			if (!(r instanceof AtlasRenderer))
+				continue;
+
+			for (AnimationDesc fa : r.getAnimations().values()) {
+				if (fa.preload || fa.id.equals(r.getInitAnimation()))
+					used = addAtlas(fa.source, atlases, used);
+			}
+		}
+
+		return used;
+	}
+
+	private long addAtlas(String atlas, ArrayList<String> atlases, long used) {
+		if (atlas == null || atlas.isEmpty() || atlases.contains(atlas))
+			return used;
+
+		// Atlases already used by the current scene don't use extra memory
+		if (AssetRegistry.getInstance().getRefCount(AssetType.ATLAS, atlas)
+				- AssetRegistry.getInstance().getRefCount(this, AssetType.ATLAS, atlas) > 0) {
+			atlases.add(atlas);
+			return used;
+		}
+
+		Long size = atlasSizes.get(atlas);
+
+		if (size == null) {
+			size = EngineAssetManager.getInstance().getAtlasTextureBytes(atlas);
+			atlasSizes.put(atlas, size);
+		}
+
+		if (used + size > memoryBudget)
+			return used;
+
+		atlases.add(atlas);
+
+		return used + size;
+	}
+}
@@ -22,12 +22,11 @@ import com.bladecoder.engine.model.ActorRenderer;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.PerspectiveCamera;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Pixmap.Format;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
-import com.badlogic.gdx.graphics.Texture.TextureWrap;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.g3d.Environment;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.graphics.g3d.ModelBatch;
@@ -51,6 +50,7 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.BufferUtils;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ScreenUtils;
 import com.bladecoder.engine.actions.ActionCallback;
 import com.bladecoder.engine.actions.ActionCallbackQueue;
 import com.bladecoder.engine.anim.AtlasAnimationDesc;
@@ -64,9 +64,7 @@ import com.bladecoder.engine.util.Utils3D;
 @SuppressWarnings("deprecation")
 public class Sprite3DRenderer implements ActorRenderer {
 
-	private final static boolean USE_FBO = false;
 	private final static int MAX_BONES = 40;
-	private final static Format FRAMEBUFFER_FORMAT = Format.RGBA4444;
 
 	private static final Rectangle VIEWPORT = new Rectangle();
 	private final static IntBuffer VIEWPORT_RESULTS = BufferUtils
@@ -81,12 +79,18 @@ public class Sprite3DRenderer implements ActorRenderer {
 	private int currentCount;
 	private int currentAnimationType;
 
-	private TextureRegion tex;
-
 	private Environment environment;
 	private Environment shadowEnvironment;
 
-	private FrameBuffer fb = null;
+	/** Region of the render target pool where the model is rendered */
+	private RenderTargetPool.RenderTarget renderTarget = null;
+	
+	/** Max. redraws per second of the render target. 0 for every frame. */
+	private float redrawFPS = 0;
+	private float redrawTime = 0;
+	
+	/** Offscreen buffer to bake the animations. Created when needed. */
+	private FrameBuffer bakeFb = null;
 
 	private int width = 200, height = 200;
 
@@ -122,6 +126,45 @@ public class Sprite3DRenderer implements ActorRenderer {
 
 	private boolean renderShadow = true;
 	
+	/** Draws a static blob texture as shadow instead of the shadow map */
+	private boolean blobShadow = false;
+	
+	// Shadow maps of the frames of the current looping animation. Idle
+	// animations repeat the same poses, so the depth pass is rendered once
+	// per frame. A loop is quantized to SHADOW_CACHE_FPS and at most
+	// SHADOW_CACHE_MAX_FRAMES keys.
+	private final static int SHADOW_CACHE_FPS = 15;
+	private final static int SHADOW_CACHE_MAX_FRAMES = 8;
+	private final static int SHADOW_CACHE_SIZE = 512;
+	
+	/** Color and depth bytes of a cached shadow map */
+	private final static int SHADOW_CACHE_MAP_BYTES = SHADOW_CACHE_SIZE * SHADOW_CACHE_SIZE * (4 + 2);
+	
+	/** Default GPU memory for the cached shadow maps of all the actors (MB) */
+	private final static int SHADOW_CACHE_DEFAULT_BUDGET = 24;
+	
+	/**
+	 * Max. number of cached shadow maps between all the actors. Calculated
+	 * from the memory budget.
+	 */
+	private static int shadowCacheMaxMaps = -1;
+	
+	/** Shadow maps released by the actors, reused by any actor */
+	private final static Array<DirectionalShadowLight> freeShadowLights = new Array<DirectionalShadowLight>();
+	
+	/** Shadow maps reserved by the actors caching an animation */
+	private static int shadowCacheReserved = 0;
+	
+	private boolean shadowCacheEnabled = true;
+	private DirectionalShadowLight[] shadowCache;
+	private String shadowCacheAnimation;
+	private float shadowCacheRotation;
+	
+	/** Animation not cached for lack of maps. Only to log it once */
+	private String shadowCacheRejected;
+	
+	private static Texture blobTexture;
+	
 	private Polygon bbox;
 
 	class ModelCacheEntry {
@@ -184,38 +227,343 @@ public class Sprite3DRenderer implements ActorRenderer {
 	}
 
 	/**
-	 * Render the 3D model into the texture
+	 * Returns the duration in seconds of an animation, applying its speed.
+	 * 
+	 * @param id
+	 *            The animation id. It can have a direction after the '.'.
 	 */
-	private void renderTex() {
-		updateViewport();
+	public float getAnimationDuration(String id) {
+		AnimationDesc fa = getBakeAnimation(id);
+
+		if (fa == null)
+			return 0;
+
+		retrieveSource(fa.source);
+
+		Animation a = sourceCache.get(fa.source).modelInstance.getAnimation(getModelAnimationId(fa.id,
+				sourceCache.get(fa.source).modelInstance));
+
+		if (a == null)
+			return 0;
+
+		return fa.duration == 0 ? a.duration : a.duration / Math.abs(fa.duration);
+	}
+
+	/**
+	 * Renders a frame of the animation in an offscreen buffer and returns its
+	 * pixels. Used to bake the animations into atlases.
+	 * 
+	 * @param id
+	 *            The animation id. If it has a direction after the '.' the
+	 *            model is rotated to that direction, if not the model looks to
+	 *            the front.
+	 * @param time
+	 *            The time of the frame in seconds.
+	 * @return The frame or null if the animation is not found. Must be
+	 *         disposed by the caller.
+	 */
+	public Pixmap bakeFrame(String id, float time) {
+		AnimationDesc fa = getBakeAnimation(id);
+
+		if (fa == null) {
+			EngineLogger.error("AnimationDesc not found: " + id);
+			return null;
+		}
+
+		retrieveSource(fa.source);
+
+		currentAnimation = fa;
+		currentSource = sourceCache.get(fa.source);
+
+		String animId = getModelAnimationId(fa.id, currentSource.modelInstance);
+
+		if (currentSource.modelInstance.getAnimation(animId) == null) {
+			EngineLogger.error("Animation NOT FOUND: " + animId);
+			return null;
+		}
+
+		int idx = id.indexOf('.');
+
+		if (idx != -1)
+			lookat(id.substring(idx + 1));
+		else
+			lookat(0);
+
+		// restart the animation even if it is the current one
+		AnimationController controller = currentSource.controller;
+		boolean allowSameAnimation = controller.allowSameAnimation;
+
+		controller.allowSameAnimation = true;
+		controller.setAnimation(animId, -1, fa.duration == 0 ? 1 : Math.abs(fa.duration), null);
+		controller.allowSameAnimation = allowSameAnimation;
+		controller.update(time);
 
-		fb.begin();
+		if (modelBatch == null)
+			createBatchs();
+
+		if (environment == null)
+			createEnvirontment();
+
+		// the exact pose is needed, not the cached one
+		if (renderShadow)
+			renderShadowMap(shadowLight);
+
+		if (bakeFb == null)
+			bakeFb = new FrameBuffer(Format.RGBA8888, width, height, true);
+
+		bakeFb.begin();
 
 		Gdx.gl.glClearColor(0, 0, 0, 0);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT | GL20.GL_DEPTH_BUFFER_BIT);
 
 		drawModel();
 
-		fb.end((int) VIEWPORT.x, (int) VIEWPORT.y, (int) VIEWPORT.width,
-				(int) VIEWPORT.height);
+		byte[] pixels = ScreenUtils.getFrameBufferPixels(0, 0, width, height, true);
+
+		bakeFb.end();
+
+		Pixmap pixmap = new Pixmap(width, height, Format.RGBA8888);
+		BufferUtils.copy(pixels, 0, pixmap.getPixels(), pixels.length);
+
+		return pixmap;
+	}
+
+	/**
+	 * Search the animation desc to bake. If the id has a direction and it is
+	 * not defined, the animation without direction is returned.
+	 */
+	private AnimationDesc getBakeAnimation(String id) {
+		AnimationDesc fa = fanims.get(id);
+		int idx = id.indexOf('.');
+
+		if (fa == null && idx != -1)
+			fa = fanims.get(id.substring(0, idx));
+
+		return fa;
+	}
+
+	/**
+	 * The animation in the model. The direction is removed if the model doesn't
+	 * have an animation with the full id.
+	 */
+	private static String getModelAnimationId(String id, ModelInstance modelInstance) {
+		int idx = id.indexOf('.');
+
+		if (idx != -1 && modelInstance.getAnimation(id) == null)
+			return id.substring(0, idx);
+
+		return id;
+	}
+
+	/**
+	 * Renders the model in the render target. Called from the pool with the
+	 * target viewport already set.
+	 */
+	void renderTarget() {
+		drawModel();
+	}
+
+	/**
+	 * Generates the shadow map before rendering the target.
+	 */
+	void genRenderTargetShadow() {
+		if (currentSource != null && renderShadow)
+			genShadowMap();
+	}
+
+	/**
+	 * Sets the max. redraws per second when rendered in the render target
+	 * pool. Useful for background actors. 0 redraws every frame.
+	 */
+	public void setRedrawFPS(float fps) {
+		redrawFPS = fps;
+	}
+
+	public float getRedrawFPS() {
+		return redrawFPS;
 	}
 
 	/**
 	 * Generates the Shadow Map
 	 */
 	private void genShadowMap() {
+		int frame = getShadowCacheFrame();
+
+		if (frame == -1) {
+			renderShadowMap(shadowLight);
+			return;
+		}
+
+		DirectionalShadowLight light = shadowCache[frame];
+
+		if (light == null) {
+			if (freeShadowLights.size > 0)
+				light = freeShadowLights.pop();
+			else
+				light = (DirectionalShadowLight) new DirectionalShadowLight(SHADOW_CACHE_SIZE, SHADOW_CACHE_SIZE,
+						30f, 30f, 1f, 100f).set(1f, 1f, 1f, 0.01f, -1f, 0.01f);
+
+			renderShadowMap(light);
+			shadowCache[frame] = light;
+		} else {
+			shadowEnvironment.shadowMap = light;
+		}
+	}
+
+	/**
+	 * Renders the depth pass in the light and sets it as the current shadow
+	 * map.
+	 */
+	private void renderShadowMap(DirectionalShadowLight light) {
 		updateViewport();
 
-		shadowLight.begin(Vector3.Zero, currentSource.camera3d.direction);
-		shadowBatch.begin(shadowLight.getCamera());
+		light.begin(Vector3.Zero, currentSource.camera3d.direction);
+		shadowBatch.begin(light.getCamera());
 		shadowBatch.render(currentSource.modelInstance);
 		shadowBatch.end();
-		shadowLight.end();
+		light.end();
+
+		shadowEnvironment.shadowMap = light;
 
 		Gdx.graphics.getGL20().glViewport((int) VIEWPORT.x, (int) VIEWPORT.y,
 				(int) VIEWPORT.width, (int) VIEWPORT.height);
 	}
 
+	/**
+	 * Returns the index of the current frame in the shadow cache or -1 if the
+	 * current animation doesn't loop or its frames don't fit in the shadow
+	 * maps left. The cache is invalidated when the animation or the model
+	 * rotation change.
+	 */
+	private int getShadowCacheFrame() {
+		if (!shadowCacheEnabled || currentSource == null || currentSource.controller.current == null
+				|| currentSource.controller.current.loopCount >= 0
+				|| currentSource.controller.current.duration <= 0) {
+			invalidateShadowCache();
+			return -1;
+		}
+
+		AnimationController.AnimationDesc current = currentSource.controller.current;
+
+		if (!current.animation.id.equals(shadowCacheAnimation) || shadowCacheRotation != modelRotation) {
+			invalidateShadowCache();
+
+			int frames = MathUtils.clamp(MathUtils.ceil(current.duration * SHADOW_CACHE_FPS), 1,
+					SHADOW_CACHE_MAX_FRAMES);
+
+			// Not cached, it is tried again in the next frame
+			if (shadowCacheReserved + frames > getShadowCacheMaxMaps()) {
+				if (!current.animation.id.equals(shadowCacheRejected)) {
+					shadowCacheRejected = current.animation.id;
+					EngineLogger.debug("Shadow cache full (" + shadowCacheReserved + " maps). Animation not cached: "
+							+ shadowCacheRejected);
+				}
+
+				return -1;
+			}
+
+			shadowCacheRejected = null;
+			shadowCacheReserved += frames;
+			shadowCache = new DirectionalShadowLight[frames];
+			shadowCacheAnimation = current.animation.id;
+			shadowCacheRotation = modelRotation;
+		}
+
+		return MathUtils.clamp((int) (current.time / current.duration * shadowCache.length), 0,
+				shadowCache.length - 1);
+	}
+
+	private static int getShadowCacheMaxMaps() {
+		if (shadowCacheMaxMaps == -1) {
+			int budget = com.bladecoder.engine.util.Config.getProperty(
+					com.bladecoder.engine.util.Config.SHADOW_CACHE_BUDGET_PROP, SHADOW_CACHE_DEFAULT_BUDGET);
+
+			shadowCacheMaxMaps = budget * 1024 * 1024 / SHADOW_CACHE_MAP_BYTES;
+		}
+
+		return shadowCacheMaxMaps;
+	}
+
+	/**
+	 * Releases the shadow maps of the actor to the shared free list.
+	 */
+	private void invalidateShadowCache() {
+		shadowCacheAnimation = null;
+
+		if (shadowCache == null)
+			return;
+
+		for (int i = 0; i < shadowCache.length; i++) {
+			if (shadowCache[i] != null)
+				freeShadowLights.add(shadowCache[i]);
+		}
+
+		shadowCacheReserved -= shadowCache.length;
+		shadowCache = null;
+	}
+
+	/**
+	 * Draws the blob shadow centered at the feet of the actor.
+	 */
+	private void drawBlobShadow(SpriteBatch batch, float x, float y, float scale) {
+		if (blobTexture == null)
+			createBlobTexture();
+
+		float w = width * scale * 0.6f;
+		float h = w * 0.25f;
+
+		batch.draw(blobTexture, x + (width * scale - w) / 2, y - h / 2, w, h);
+	}
+
+	/**
+	 * Bakes the blob shadow texture: a radial gradient shared by all the
+	 * actors.
+	 */
+	private static void createBlobTexture() {
+		final int size = 64;
+		Pixmap p = new Pixmap(size, size, Format.RGBA8888);
+
+		// the blending is global to all the pixmaps, restore it when done
+		Pixmap.Blending oldBlending = Pixmap.getBlending();
+		Pixmap.setBlending(Pixmap.Blending.None);
+
+		try {
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
+					float dx = (i + 0.5f) / size * 2 - 1;
+					float dy = (j + 0.5f) / size * 2 - 1;
+					float d = Math.min(1, (float) Math.sqrt(dx * dx + dy * dy));
+					float alpha = 0.5f * (1 - d * d);
+
+					p.setColor(0, 0, 0, alpha);
+					p.drawPixel(i, j);
+				}
+			}
+		} finally {
+			Pixmap.setBlending(oldBlending);
+		}
+
+		blobTexture = new Texture(p);
+		blobTexture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+		p.dispose();
+	}
+
+	public void setRenderShadow(boolean v) {
+		renderShadow = v;
+	}
+
+	public boolean isRenderShadow() {
+		return renderShadow;
+	}
+
+	public void setBlobShadow(boolean v) {
+		blobShadow = v;
+	}
+
+	public boolean isBlobShadow() {
+		return blobShadow;
+	}
+
 	private void drawModel() {
 		if (currentSource != null) {
 
@@ -362,6 +710,9 @@ public class Sprite3DRenderer implements ActorRenderer {
 		currentSource = sourceCache.get(fa.source);
 		animationCb = cb;
 
+		if (renderTarget != null)
+			renderTarget.setDirty();
+
 		if (currentSource == null || currentSource.refCounter < 1) {
 			// If the source is not loaded. Load it.
 			loadSource(fa.source);
@@ -467,6 +818,9 @@ public class Sprite3DRenderer implements ActorRenderer {
 	private void lookat(float angle) {
 		currentSource.modelInstance.transform.setToRotation(Vector3.Y, angle);
 		modelRotation = angle;
+
+		if (renderTarget != null)
+			renderTarget.setDirty();
 	}
 
 	@Override
@@ -512,12 +866,18 @@ public class Sprite3DRenderer implements ActorRenderer {
 			currentSource.controller.update(delta);
 			lastAnimationTime += delta;
 
-			// GENERATE SHADOW MAP
-			if(renderShadow)
-				genShadowMap();
+			if (renderTarget != null) {
+				redrawTime += delta;
 
-			if (USE_FBO)
-				renderTex();
+				// the shadow map is generated when the pool renders the target
+				if (redrawFPS <= 0 || redrawTime >= 1 / redrawFPS) {
+					redrawTime = 0;
+					renderTarget.setDirty();
+				}
+			} else if (renderShadow) {
+				// GENERATE SHADOW MAP
+				genShadowMap();
+			}
 		}
 	}
 
@@ -559,8 +919,18 @@ public class Sprite3DRenderer implements ActorRenderer {
 
 		x = x - getWidth() / 2 * scale;
 
-		if (USE_FBO) {
-			batch.draw(tex, x, y, 0, 0, width, height, scale, scale, 0);
+		if (blobShadow)
+			drawBlobShadow(batch, x, y, scale);
+
+		if (renderTarget != null) {
+			if (renderTarget.isDirty()) {
+				// not rendered before drawing the scene, ex. in the editor
+				batch.end();
+				RenderTargetPool.flush();
+				batch.begin();
+			}
+
+			batch.draw(renderTarget.getRegion(), x, y, 0, 0, width, height, scale, scale, 0);
 		} else {
 			float p0x, p0y, pfx, pfy;
 
@@ -758,26 +1128,17 @@ public class Sprite3DRenderer implements ActorRenderer {
 
 		createEnvirontment();
 
-		if (currentSource != null && renderShadow)
-			genShadowMap();
-
-		if (USE_FBO) {
-			fb = new FrameBuffer(FRAMEBUFFER_FORMAT, width, height, true) {
-				@Override
-				protected void setupTexture() {
-					colorTexture = new Texture(width, height, format);
-					colorTexture.setFilter(TextureFilter.Linear,
-							TextureFilter.Linear);
-					colorTexture.setWrap(TextureWrap.ClampToEdge,
-							TextureWrap.ClampToEdge);
-				}
-			};
+		shadowCacheEnabled = com.bladecoder.engine.util.Config.getProperty(
+				com.bladecoder.engine.util.Config.SHADOW_CACHE_PROP, true);
 
-			tex = new TextureRegion(fb.getColorBufferTexture());
-			tex.flip(false, true);
+		if (renderTarget == null
+				&& com.bladecoder.engine.util.Config.getProperty(com.bladecoder.engine.util.Config.RENDER_TARGETS_3D_PROP, true))
+			renderTarget = RenderTargetPool.obtain(this, width, height);
 
-			renderTex();
-		}
+		if (renderTarget != null)
+			renderTarget.setDirty();
+		else if (currentSource != null && renderShadow)
+			genShadowMap();
 		
 		computeBbox();
 	}
@@ -793,8 +1154,17 @@ public class Sprite3DRenderer implements ActorRenderer {
 		environment = null;
 		shadowEnvironment = null;
 
-		if (USE_FBO)
-			fb.dispose();
+		if (renderTarget != null) {
+			RenderTargetPool.free(renderTarget);
+			renderTarget = null;
+		}
+
+		invalidateShadowCache();
+
+		if (bakeFb != null) {
+			bakeFb.dispose();
+			bakeFb = null;
+		}
 	}
 
 	public static void disposeBatchs() {
@@ -807,6 +1177,16 @@ public class Sprite3DRenderer implements ActorRenderer {
 		floorBatch.dispose();
 
 		modelBatch = shadowBatch = floorBatch = null;
+
+		if (blobTexture != null) {
+			blobTexture.dispose();
+			blobTexture = null;
+		}
+
+		for (DirectionalShadowLight l : freeShadowLights)
+			l.dispose();
+
+		freeShadowLights.clear();
 	}
 
 	@Override
@@ -843,7 +1223,9 @@ public class Sprite3DRenderer implements ActorRenderer {
 		json.writeValue("currentCount", currentCount);
 		json.writeValue("currentAnimationType", currentAnimationType);
 		json.writeValue("renderShadow", renderShadow);
+		json.writeValue("blobShadow", blobShadow);
 		json.writeValue("lastAnimationTime", lastAnimationTime);
+		json.writeValue("redrawFPS", redrawFPS);
 
 		// TODO: SAVE AND RESTORE CURRENT DIRECTION
 		// TODO: shadowlight, cel light
@@ -878,6 +1260,8 @@ public class Sprite3DRenderer implements ActorRenderer {
 		currentAnimationType = json.readValue("currentAnimationType",
 				Integer.class, jsonData);
 		renderShadow = json.readValue("renderShadow", Boolean.class, jsonData);
+		blobShadow = json.readValue("blobShadow", Boolean.class, false, jsonData);
 		lastAnimationTime = json.readValue("lastAnimationTime", Float.class, jsonData);
+		redrawFPS = json.readValue("redrawFPS", Float.class, 0f, jsonData);
 	}
 }
\ No newline at end of file
@@ -54,6 +54,15 @@ public class SpriteActor extends BaseActor {
 	private float walkingSpeed = DEFAULT_WALKING_SPEED;
 	private boolean bboxFromRenderer = false;
 
+	/**
+	 * Reusable path buffers. Two buffers, so the path of the current walk is
+	 * not modified when searching a new one.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	transient private final ArrayList<Vector2>[] walkingPaths = new ArrayList[] { new ArrayList<Vector2>(),
+			new ArrayList<Vector2>() };
+	transient private int currentWalkingPath = 0;
+
 	public void setRenderer(ActorRenderer r) {
 		renderer = r;
 	}
@@ -64,6 +73,7 @@ public class SpriteActor extends BaseActor {
 
 	public void setWalkingSpeed(float s) {
 		walkingSpeed = s;
+		setDirty();
 	}
 
 	public DepthType getDepthType() {
@@ -72,6 +82,7 @@ public class SpriteActor extends BaseActor {
 
 	public void setDepthType(DepthType v) {
 		depthType = v;
+		setDirty();
 	}
 
 	public void setPosition(float x, float y) {
@@ -113,6 +124,11 @@ public class SpriteActor extends BaseActor {
 	public void setScale(float scale) {
 		this.scale = scale;
 		bbox.setScale(scale, scale);
+		
+		if(scene != null) {
+			scene.setDirty(true);
+			scene.updateActorBounds(this);
+		}
 	}
 
 	@Override
@@ -134,6 +150,10 @@ public class SpriteActor extends BaseActor {
 				scaleTween = null;
 			}
 		}
+		
+		// the renderer can change the bbox when changing the animation frame
+		if (bboxFromRenderer)
+			scene.updateActorBounds(this);
 	}
 
 	public void draw(SpriteBatch batch) {
@@ -177,6 +197,10 @@ public class SpriteActor extends BaseActor {
 			posTween = null;
 
 		renderer.startAnimation(id, repeatType, count, cb);
+		setDirty();
+
+		if (bboxFromRenderer && scene != null)
+			scene.updateActorBounds(this);
 
 		fa = renderer.getCurrentAnimation();
 
@@ -266,7 +290,9 @@ public class SpriteActor extends BaseActor {
 		}
 
 		if (scene.getPolygonalNavGraph() != null) {
-			walkingPath = scene.getPolygonalNavGraph().findPath(p0.x, p0.y, pf.x, pf.y);
+			currentWalkingPath = (currentWalkingPath + 1) % walkingPaths.length;
+			walkingPath = scene.getPolygonalNavGraph().findPath(p0.x, p0.y, pf.x, pf.y,
+					walkingPaths[currentWalkingPath]);
 		}
 
 		if (walkingPath == null || walkingPath.size() == 0) {
@@ -17,10 +17,15 @@ package com.bladecoder.engine.model;
 
 import java.util.ArrayList;
 
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.Json.Serializable;
+import com.badlogic.gdx.utils.JsonValue;
 import com.bladecoder.engine.actions.Action;
+import com.bladecoder.engine.actions.ActionCallback;
+import com.bladecoder.engine.util.ActionCallbackSerialization;
 import com.bladecoder.engine.util.EngineLogger;
 
-public class Verb implements VerbRunner {
+public class Verb implements VerbRunner, Serializable {
 	public static final String LOOKAT_VERB = "lookat";
 	public static final String ACTION_VERB = "pickup";
 	public static final String LEAVE_VERB = "leave";
@@ -53,6 +58,9 @@ public class Verb implements VerbRunner {
 	
 	public void add(Action a) {
 		actions.add(a);
+		
+		if(a instanceof ActionCallback)
+			ActionCallbackSerialization.register((ActionCallback)a);
 	}
 	
 	public ArrayList<Action> getActions() {
@@ -118,4 +126,47 @@ public class Verb implements VerbRunner {
 		
 		ip = actions.size();
 	}	
+
+	@Override
+	public void write(Json json) {
+		json.writeValue("id", id);
+		json.writeValue("actions", actions, ArrayList.class, Action.class);
+		json.writeValue("ip", ip);
+		
+		if(!ActionCallbackSerialization.isWriteIds())
+			return;
+		
+		// Callback ids of the verb and its actions. 0 if the action is not a callback
+		int cbIds[] = new int[actions.size() + 1];
+		
+		cbIds[0] = ActionCallbackSerialization.register(this);
+		
+		for(int i = 0; i < actions.size(); i++) {
+			if(actions.get(i) instanceof ActionCallback)
+				cbIds[i + 1] = ActionCallbackSerialization.register((ActionCallback)actions.get(i));
+		}
+		
+		json.writeValue("cbIds", cbIds);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void read(Json json, JsonValue jsonData) {
+		id = json.readValue("id", String.class, jsonData);
+		actions = json.readValue("actions", ArrayList.class, Action.class, jsonData);
+		ip = json.readValue("ip", Integer.class, jsonData);
+		
+		int cbIds[] = json.readValue("cbIds", int[].class, jsonData);
+		
+		// Old saved games and compiled chapters don't have ids
+		if(cbIds == null)
+			return;
+		
+		ActionCallbackSerialization.register(this, cbIds[0]);
+		
+		for(int i = 0; i < actions.size(); i++) {
+			if(cbIds[i + 1] != 0)
+				ActionCallbackSerialization.register((ActionCallback)actions.get(i), cbIds[i + 1]);
+		}
+	}
 }
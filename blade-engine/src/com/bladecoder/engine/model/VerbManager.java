@@ -17,28 +17,85 @@ package com.bladecoder.engine.model;
 
 import java.text.MessageFormat;
 import java.util.HashMap;
+import java.util.Map.Entry;
 
 import com.bladecoder.engine.model.Verb;
 
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.Json.Serializable;
 import com.badlogic.gdx.utils.JsonValue;
+import com.bladecoder.engine.util.ActionCallbackSerialization;
 import com.bladecoder.engine.util.EngineLogger;
 
 public class VerbManager implements Serializable {
 	protected static HashMap<String, Verb> worldVerbs = new HashMap<String, Verb>();
 	protected HashMap<String, Verb> verbs = new HashMap<String, Verb>();
 
+	/**
+	 * Verbs indexed by id, target and state to resolve them without building
+	 * composite keys.
+	 */
+	private transient HashMap<String, VerbDispatch> dispatchTable = new HashMap<String, VerbDispatch>();
+
 	public void addVerb(String id, Verb v) {
 		verbs.put(id, v);
+		index(id, v);
+		ActionCallbackSerialization.register(v);
 	}
 
 	public static void addDefaultVerb(String id, Verb v) {
 		worldVerbs.put(id, v);
+		ActionCallbackSerialization.register(v);
+	}
+
+	/**
+	 * Adds the verb to the dispatch table. Verb keys are 'id.target.state',
+	 * 'id.target', 'id.state' or 'id' and ids can contain dots, so the verb
+	 * is added for every way of splitting the key.
+	 */
+	private void index(String key, Verb v) {
+		getDispatch(key).verb = v;
+
+		for (int i = key.indexOf('.'); i != -1; i = key.indexOf('.', i + 1)) {
+			VerbDispatch d = getDispatch(key.substring(0, i));
+			String rest = key.substring(i + 1);
+
+			d.bySuffix.put(rest, v);
+
+			for (int j = rest.indexOf('.'); j != -1; j = rest.indexOf('.', j + 1)) {
+				String target = rest.substring(0, j);
+				HashMap<String, Verb> byState = d.byTargetState.get(target);
+
+				if (byState == null) {
+					byState = new HashMap<String, Verb>();
+					d.byTargetState.put(target, byState);
+				}
+
+				byState.put(rest.substring(j + 1), v);
+			}
+		}
+	}
+
+	private VerbDispatch getDispatch(String id) {
+		VerbDispatch d = dispatchTable.get(id);
+
+		if (d == null) {
+			d = new VerbDispatch();
+			dispatchTable.put(id, d);
+		}
+
+		return d;
+	}
+
+	private void rebuildDispatchTable() {
+		dispatchTable.clear();
+
+		if (verbs == null)
+			return;
+
+		for (Entry<String, Verb> e : verbs.entrySet())
+			index(e.getKey(), e.getValue());
 	}
-	
-	// Used only in getVerb(). It is a class variable to avoid allocations
-	private StringBuilder tmpsb = new StringBuilder();
 
 	/**
 	 * Returns an actor Verb.
@@ -53,31 +110,30 @@ public class VerbManager implements Serializable {
 	 * @param target When an object is used by other object.
 	 */
 	public Verb getVerb(String id, String state, String target) {
+		VerbDispatch d = dispatchTable.get(id);
+
+		if (d == null)
+			return null;
+
 		Verb v = null;
-		
-		if(target != null) {
-			tmpsb.setLength(0);
-			if(state != null) {
-				tmpsb.append(id).append(".").append(target).append(".").append(state);
-				v = verbs.get(tmpsb.toString()); // id.target.state
-			}
 
-			if (v == null) {
-				tmpsb.setLength(0);
-				tmpsb.append(id).append(".").append(target);
-				v = verbs.get(tmpsb.toString()); // id.target
+		if (target != null) {
+			if (state != null) {
+				HashMap<String, Verb> byState = d.byTargetState.get(target);
+
+				if (byState != null)
+					v = byState.get(state); // id.target.state
 			}
+
+			if (v == null)
+				v = d.bySuffix.get(target); // id.target
 		}
-		
-		if (v == null && state != null) {
-			tmpsb.setLength(0);
-			tmpsb.append(id).append(".").append(state);
-			
-			v = verbs.get(tmpsb.toString()); // id.state
-		}
+
+		if (v == null && state != null)
+			v = d.bySuffix.get(state); // id.state
 
 		if (v == null)
-			v = verbs.get(id); // id
+			v = d.verb; // id
 
 		return v;
 	}
@@ -148,6 +204,17 @@ public class VerbManager implements Serializable {
 	@Override
 	public void read (Json json, JsonValue jsonData) {
 		verbs = json.readValue("verbs", HashMap.class, Verb.class, jsonData);
+		rebuildDispatchTable();
+	}
+
+	/**
+	 * The verbs with the same id. The verb without target and state and the
+	 * verbs by target and/or state.
+	 */
+	private static class VerbDispatch {
+		Verb verb;
+		final HashMap<String, Verb> bySuffix = new HashMap<String, Verb>();
+		final HashMap<String, HashMap<String, Verb>> byTargetState = new HashMap<String, HashMap<String, Verb>>();
 	}
 
 
@@ -15,9 +15,11 @@
  ******************************************************************************/
 package com.bladecoder.engine.model;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.nio.ByteBuffer;
 import java.util.HashMap;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -28,9 +30,9 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Pixmap.Format;
-import com.badlogic.gdx.graphics.PixmapIO;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.Json.Serializable;
 import com.badlogic.gdx.utils.JsonValue;
@@ -42,8 +44,15 @@ import com.bladecoder.engine.anim.Timers;
 import com.bladecoder.engine.assets.AssetConsumer;
 import com.bladecoder.engine.assets.EngineAssetManager;
 import com.bladecoder.engine.i18n.I18N;
+import com.bladecoder.engine.loader.ChapterBinaryLoader;
 import com.bladecoder.engine.loader.WorldXMLLoader;
+import com.bladecoder.engine.util.ActionCallbackSerialization;
+import com.bladecoder.engine.util.BinaryJsonReader;
+import com.bladecoder.engine.util.BinaryJsonWriter;
+import com.bladecoder.engine.util.Config;
 import com.bladecoder.engine.util.EngineLogger;
+import com.bladecoder.engine.util.FrameProfiler;
+import com.bladecoder.engine.util.StatsSpriteBatch;
 
 public class World implements Serializable, AssetConsumer {
 
@@ -55,8 +64,21 @@ public class World implements Serializable, AssetConsumer {
 	public static enum AssetState {
 		LOADED, LOADING, LOADING_AND_INIT_SCENE, LOAD_ASSETS, LOAD_ASSETS_AND_INIT_SCENE
 	};
-	
-	private static final boolean CACHE_ENABLED = true;
+
+	/** Default number of scenes to keep loaded when leaving them */
+	private static final int DEFAULT_SCENE_CACHE_SIZE = 3;
+
+	/** Default texture memory in MB for the scene cache */
+	private static final int DEFAULT_SCENE_CACHE_MEMORY_BUDGET = 128;
+
+	/**
+	 * Default time in ms to load assets in every frame. The rest of the frame
+	 * is left to render the loading screen.
+	 */
+	private static final int DEFAULT_LOADING_TIME_SLICE = 10;
+
+	/** Default texture memory in MB for prefetching the next scenes */
+	private static final int DEFAULT_PREFETCH_MEMORY_BUDGET = 32;
 
 	private static final World instance = new World();
 
@@ -105,9 +127,26 @@ public class World implements Serializable, AssetConsumer {
 
 	transient private SpriteBatch spriteBatch;
 
-	// We not dispose the last loaded scene.
-	// Instead we cache it to improve performance when returning
-	transient private Scene cachedScene;
+	// We not dispose the last visited scenes.
+	// Instead we cache them to improve performance when returning
+	transient private SceneCache sceneCache;
+
+	/** Time in ms to load assets in every frame */
+	transient private int loadingTimeSlice = DEFAULT_LOADING_TIME_SLICE;
+
+	/**
+	 * Compiled chapter with the scenes not parsed yet. The scenes are parsed
+	 * when they are used for the first time.
+	 */
+	transient private ChapterBinaryLoader pendingScenes;
+
+	/** Loads the atlases of the scenes reachable from the current scene */
+	transient private ScenePrefetcher prefetcher;
+
+	transient private final AsyncGameStateWriter gameStateWriter = new AsyncGameStateWriter();
+
+	/** Saves the game in background every time a new scene is entered */
+	transient private boolean autosave;
 
 	public static World getInstance() {
 		return instance;
@@ -118,7 +157,12 @@ public class World implements Serializable, AssetConsumer {
 	}
 
 	private void init() {
+		ActionCallbackSerialization.clear();
+
+		autosave = Config.getProperty(Config.AUTOSAVE_PROP, false);
+
 		scenes = new HashMap<String, Scene>();
+		pendingScenes = null;
 		inventory = new Inventory();
 		textManager = new TextManager();
 
@@ -127,15 +171,22 @@ public class World implements Serializable, AssetConsumer {
 		cutMode = false;
 		timeOfGame = 0;
 		currentChapter = null;
-		cachedScene = null;
+		sceneCache = new SceneCache(Config.getProperty(Config.SCENE_CACHE_SIZE_PROP, DEFAULT_SCENE_CACHE_SIZE),
+				Config.getProperty(Config.SCENE_CACHE_MEMORY_BUDGET_PROP, DEFAULT_SCENE_CACHE_MEMORY_BUDGET) * 1024L
+						* 1024L);
 
 		customProperties = new HashMap<String, String>();
 
-		spriteBatch = new SpriteBatch();
+		spriteBatch = new StatsSpriteBatch();
+		SceneLayer.setTextureBatching(Config.getProperty(Config.TEXTURE_BATCHING_PROP, false));
 
 		transition = new Transition();
 		paused = false;
 
+		loadingTimeSlice = Config.getProperty(Config.LOADING_TIME_SLICE_PROP, DEFAULT_LOADING_TIME_SLICE);
+		prefetcher = new ScenePrefetcher(
+				Config.getProperty(Config.PREFETCH_MEMORY_BUDGET_PROP, DEFAULT_PREFETCH_MEMORY_BUDGET) * 1024L * 1024L);
+
 		disposed = false;
 	}
 
@@ -158,9 +209,16 @@ public class World implements Serializable, AssetConsumer {
 		if (assetState == AssetState.LOADED) {
 
 			spriteBatch.setProjectionMatrix(currentScene.getCamera().combined);
+			FrameProfiler.begin(FrameProfiler.WORLD_DRAW);
+			
+			// render the 3D actors before drawing to not interrupt the batch
+			RenderTargetPool.flush();
+			
 			spriteBatch.begin();
 			getCurrentScene().draw(spriteBatch);
 			spriteBatch.end();
+			FrameProfiler.end(FrameProfiler.WORLD_DRAW);
+			FrameProfiler.addRenderCalls(spriteBatch.renderCalls);
 		}
 	}
 
@@ -173,20 +231,10 @@ public class World implements Serializable, AssetConsumer {
 			else
 				assetState = AssetState.LOADING_AND_INIT_SCENE;
 
-//			initLoadingTime = System.currentTimeMillis();
-			
-			
-			// Try to load scene for 100ms before. If not loaded in this time, show the loading screen
-			float t0 = System.currentTimeMillis();
-			float t = 0f;
-			while(EngineAssetManager.getInstance().isLoading() && t -t0 < 100f) {
-				t = System.currentTimeMillis();
-			}
-
 		} 
 		
 		if ((assetState == AssetState.LOADING || assetState == AssetState.LOADING_AND_INIT_SCENE)
-				&& !EngineAssetManager.getInstance().isLoading()) {
+				&& !EngineAssetManager.getInstance().isLoading(loadingTimeSlice)) {
 			
 			retrieveAssets();
 
@@ -196,10 +244,16 @@ public class World implements Serializable, AssetConsumer {
 
 			EngineLogger.debug("ASSETS LOADING TIME (ms): " + (System.currentTimeMillis() - initLoadingTime));
 
+			sceneCache.evict();
+			prefetcher.prefetch(currentScene, this);
+
 			// call 'init' verb only when arrives from setCurrentScene and not
 			// from load or restoring
 			if (initScene) {
 				initCurrentScene();
+
+				if (autosave)
+					saveGameStateAsync(GAMESTATE_FILENAME);
 			}
 
 		}
@@ -207,17 +261,31 @@ public class World implements Serializable, AssetConsumer {
 		if (paused || assetState != AssetState.LOADED)
 			return;
 
+		prefetcher.update();
+
 		timeOfGame += delta;
 		
+		FrameProfiler.begin(FrameProfiler.SCENE_UPDATE);
 		getCurrentScene().update(delta);
+		FrameProfiler.end(FrameProfiler.SCENE_UPDATE);
+
+		FrameProfiler.begin(FrameProfiler.TEXT_MANAGER);
 		textManager.update(delta);
+		FrameProfiler.end(FrameProfiler.TEXT_MANAGER);
+
+		FrameProfiler.begin(FrameProfiler.TIMERS);
 		timers.update(delta);
+		FrameProfiler.end(FrameProfiler.TIMERS);
 
 		if (!transition.isFinish()) {
+			FrameProfiler.begin(FrameProfiler.TRANSITION);
 			transition.update(delta);
+			FrameProfiler.end(FrameProfiler.TRANSITION);
 		}
 		
+		FrameProfiler.begin(FrameProfiler.CALLBACK_QUEUE);
 		ActionCallbackQueue.run();
+		FrameProfiler.end(FrameProfiler.CALLBACK_QUEUE);
 	}
 
 	@Override
@@ -248,6 +316,16 @@ public class World implements Serializable, AssetConsumer {
 		return assetState;
 	}
 
+	/**
+	 * @return the loading progress of the scene assets between 0 and 1.
+	 */
+	public float getLoadingProgress() {
+		if (assetState == AssetState.LOADED)
+			return 1f;
+
+		return EngineAssetManager.getInstance().getProgress();
+	}
+
 	/**
 	 * Try to load the save game if exists. In other case, load the game from
 	 * XML.
@@ -325,13 +403,14 @@ public class World implements Serializable, AssetConsumer {
 		
 		initLoadingTime = System.currentTimeMillis();		
 		
-		if(cachedScene == scene) {
+		// a visited scene can change in many ways, save it from now on
+		scene.setDirty(true);
+		
+		if(sceneCache.remove(scene)) {
 			assetState = AssetState.LOADING_AND_INIT_SCENE;		
 		} else {
-			if(cachedScene != null) {
-				cachedScene.dispose();
-				cachedScene = null;
-			}
+			// Free memory before loading the new scene
+			sceneCache.evict();
 			
 			assetState = AssetState.LOAD_ASSETS_AND_INIT_SCENE;	
 		}
@@ -345,10 +424,7 @@ public class World implements Serializable, AssetConsumer {
 			
 			// TODO Stop sounds
 
-			if(CACHE_ENABLED) 
-				cachedScene = currentScene; // CACHE ENABLED
-			else
-				currentScene.dispose(); // CACHE DISABLED
+			sceneCache.add(currentScene);
 
 			transition.reset();
 
@@ -369,6 +445,14 @@ public class World implements Serializable, AssetConsumer {
 			currentScene.runVerb("init");
 	}
 
+	/**
+	 * @return true if the scene assets are loaded. That is, the scene is the
+	 *         current scene or it is in the scene cache.
+	 */
+	public boolean isSceneLoaded(Scene s) {
+		return s == currentScene || sceneCache.contains(s);
+	}
+
 	public Inventory getInventory() {
 		return inventory;
 	}
@@ -382,19 +466,58 @@ public class World implements Serializable, AssetConsumer {
 	}
 
 	public Scene getScene(String id) {
-		return scenes.get(id);
+		Scene s = scenes.get(id);
+
+		if (s == null && pendingScenes != null)
+			s = loadPendingScene(id);
+
+		return s;
 	}
 
+	/**
+	 * Returns all the chapter scenes. The scenes not parsed yet are parsed.
+	 */
 	public HashMap<String, Scene> getScenes() {
+		if (pendingScenes != null) {
+			for (String id : pendingScenes.getSceneIds()) {
+				if (!scenes.containsKey(id))
+					loadPendingScene(id);
+			}
+
+			pendingScenes = null;
+		}
+
 		return scenes;
 	}
 
+	/**
+	 * Sets the compiled chapter with the scenes to parse when used for the
+	 * first time. The scenes already in the world take precedence.
+	 */
+	public void setPendingScenes(ChapterBinaryLoader chapter) {
+		pendingScenes = chapter;
+	}
+
+	private Scene loadPendingScene(String id) {
+		Scene s = pendingScenes.loadScene(id);
+
+		if (s != null) {
+			s.resetCamera(width, height);
+			s.setDirty(false);
+			scenes.put(id, s);
+
+			EngineLogger.debug("SCENE PARSED: " + id);
+		}
+
+		return s;
+	}
+
 	public void setCutMode(boolean v) {
 		cutMode = v;
 	}
 
 	public void setCurrentScene(String id) {
-		Scene s = scenes.get(id);
+		Scene s = getScene(id);
 
 		if (s != null) {
 			setCurrentScene(s);
@@ -448,6 +571,9 @@ public class World implements Serializable, AssetConsumer {
 	@Override
 	public void dispose() {
 
+		// Pending saves are written before exiting
+		gameStateWriter.dispose();
+
 		try {
 			
 			textManager.reset();
@@ -465,13 +591,12 @@ public class World implements Serializable, AssetConsumer {
 			currentScene.dispose();
 			currentScene = null;
 			
-			if(cachedScene != null) {
-				cachedScene.dispose();
-				cachedScene = null;
-			}
+			sceneCache.clear();
 
 			inventory.dispose();
 
+			prefetcher.clear();
+
 			spriteBatch.dispose();
 
 			Sprite3DRenderer.disposeBatchs();
@@ -546,7 +671,11 @@ public class World implements Serializable, AssetConsumer {
 	}
 
 	public boolean savedGameExists(String filename) {
-		return EngineAssetManager.getInstance().getUserFile(filename).exists();
+		FileHandle savedFile = EngineAssetManager.getInstance().getUserFile(filename);
+
+		AsyncGameStateWriter.recover(savedFile);
+
+		return savedFile.exists();
 	}
 
 	// ********** JSON SERIALIZATION FOR GAME SAVING **********
@@ -569,15 +698,29 @@ public class World implements Serializable, AssetConsumer {
 	public void loadGameState(FileHandle savedFile) {
 		EngineLogger.debug("LOADING GAME STATE");
 
+		// The file can be being written
+		gameStateWriter.waitForCompletion();
+
 		if (!disposed)
 			dispose();
 
 		init();
 
+		AsyncGameStateWriter.recover(savedFile);
+
 		if (savedFile.exists()) {
 			assetState = AssetState.LOAD_ASSETS;
 
-			new Json().fromJson(World.class, savedFile.reader("UTF-8"));
+			long initTime = System.currentTimeMillis();
+
+			if (BinaryJsonReader.isBinary(savedFile)) {
+				Json json = new Json();
+				json.readValue(World.class, null, new BinaryJsonReader().parse(savedFile));
+			} else {
+				new Json().fromJson(World.class, savedFile.reader("UTF-8"));
+			}
+
+			EngineLogger.debug("GAME STATE LOADING TIME (ms): " + (System.currentTimeMillis() - initTime));
 
 		} else {
 			EngineLogger.error("LOADGAMESTATE: no saved game exists");
@@ -590,30 +733,96 @@ public class World implements Serializable, AssetConsumer {
 		if (disposed)
 			return;
 
-		Json json = new Json();
-		json.setOutputType(OutputType.javascript);
+		// Avoid a pending async save overwriting this one
+		gameStateWriter.waitForCompletion();
 
-		String s = null;
+		long initTime = System.currentTimeMillis();
 
-		if (EngineLogger.debugMode())
-			s = json.prettyPrint(instance);
-		else
-			s = json.toJson(instance);
+		Json json = new Json();
+		json.setOutputType(OutputType.javascript);
 
-		Writer w = EngineAssetManager.getInstance().getUserFile(filename).writer(false, "UTF-8");
+		FileHandle f = EngineAssetManager.getInstance().getUserFile(filename);
 
 		try {
-			w.write(s);
-			w.close();
-		} catch (IOException e) {
+			if (EngineLogger.debugMode()) {
+				Writer w = f.writer(false, "UTF-8");
+				w.write(json.prettyPrint(instance));
+				w.close();
+			} else if (Config.getProperty(Config.BINARY_SAVEGAME_PROP, true)) {
+				json.toJson(instance, new BinaryJsonWriter(new BufferedOutputStream(f.write(false), 8192)));
+			} else {
+				json.toJson(instance, f.writer(false, "UTF-8"));
+			}
+		} catch (Exception e) {
 			EngineLogger.error("ERROR SAVING GAME", e);
 		}
 
+		EngineLogger.debug("GAME STATE SAVING TIME (ms): " + (System.currentTimeMillis() - initTime));
+
 		// Save Screenshot
 		takeScreenshot(filename + ".png", SCREENSHOT_DEFAULT_WIDTH);
 	}
 
+	/**
+	 * Saves the game state without blocking the game thread. The state is
+	 * serialized to memory here and written to the file, with the screenshot,
+	 * in a background thread.
+	 */
+	public void saveGameStateAsync(String filename) {
+		EngineLogger.debug("SAVING GAME STATE ASYNC");
+
+		if (disposed)
+			return;
+
+		long initTime = System.currentTimeMillis();
+
+		Json json = new Json();
+		json.setOutputType(OutputType.javascript);
+
+		ByteArrayOutputStream state = new ByteArrayOutputStream(64 * 1024);
+
+		try {
+			if (Config.getProperty(Config.BINARY_SAVEGAME_PROP, true)) {
+				json.toJson(instance, new BinaryJsonWriter(state));
+			} else {
+				json.toJson(instance, new OutputStreamWriter(state, "UTF-8"));
+			}
+		} catch (Exception e) {
+			EngineLogger.error("ERROR SAVING GAME", e);
+			return;
+		}
+
+		EngineLogger.debug("GAME STATE SNAPSHOT TIME (ms): " + (System.currentTimeMillis() - initTime));
+
+		EngineAssetManager am = EngineAssetManager.getInstance();
+
+		gameStateWriter.write(am.getUserFile(filename), state.toByteArray(), am.getUserFile(filename + ".png"),
+				getScreenshot(SCREENSHOT_DEFAULT_WIDTH));
+	}
+
+	/**
+	 * @return true if an async save is not written yet.
+	 */
+	public boolean isSaving() {
+		return gameStateWriter.isWriting();
+	}
+
+	/**
+	 * Blocks until the async saves are written.
+	 */
+	public void waitForSaves() {
+		gameStateWriter.waitForCompletion();
+	}
+
 	public void takeScreenshot(String filename, int w) {
+		AsyncGameStateWriter.writeScreenshot(EngineAssetManager.getInstance().getUserFile(filename),
+				getScreenshot(w));
+	}
+
+	/**
+	 * Draws the world and reads it back. The pixmap is upside down.
+	 */
+	private Pixmap getScreenshot(int w) {
 
 		int h = (int) (w * ((float) height) / (float) width);
 
@@ -624,24 +833,25 @@ public class World implements Serializable, AssetConsumer {
 		Pixmap pixmap = ScreenUtils.getFrameBufferPixmap(0, 0, w, h);
 		fbo.end();
 
-		// Flip the pixmap upside down
-		ByteBuffer pixels = pixmap.getPixels();
-		int numBytes = w * h * 4;
-		byte[] lines = new byte[numBytes];
-		int numBytesPerLine = w * 4;
-		for (int i = 0; i < h; i++) {
-			pixels.position((h - i - 1) * numBytesPerLine);
-			pixels.get(lines, i * numBytesPerLine, numBytesPerLine);
-		}
-		pixels.clear();
-		pixels.put(lines);
+		fbo.dispose();
 
-		PixmapIO.writePNG(EngineAssetManager.getInstance().getUserFile(filename), pixmap);
+		return pixmap;
 	}
 
 	@Override
 	public void write(Json json) {
-		json.writeValue("scenes", scenes, scenes.getClass(), Scene.class);
+		// Only the scenes modified since the chapter was loaded are saved. The
+		// rest are restored from the chapter XML.
+		HashMap<String, Scene> dirtyScenes = new HashMap<String, Scene>();
+
+		for (Scene s : scenes.values()) {
+			if (s.isDirty() || s == currentScene)
+				dirtyScenes.put(s.getId(), s);
+		}
+
+		json.writeValue("deltaScenes", true);
+		json.writeValue("callbackIdBase", ActionCallbackSerialization.getNextId());
+		json.writeValue("scenes", dirtyScenes, HashMap.class, Scene.class);
 		json.writeValue("currentScene", currentScene.getId());
 		json.writeValue("inventory", inventory);
 		json.writeValue("timeOfGame", timeOfGame);
@@ -668,7 +878,26 @@ public class World implements Serializable, AssetConsumer {
 	@SuppressWarnings("unchecked")
 	@Override
 	public void read(Json json, JsonValue jsonData) {
-		instance.scenes = json.readValue("scenes", HashMap.class, Scene.class, jsonData);
+		instance.currentChapter = json.readValue("chapter", String.class, jsonData);
+
+		if (json.readValue("deltaScenes", Boolean.class, false, jsonData)) {
+			// The baseline scenes are parsed from the chapter and the saved
+			// scenes replace them. The ids read from the saved game are
+			// reserved before parsing to avoid clashes.
+			ActionCallbackSerialization.reserveIds(json.readValue("callbackIdBase", Integer.class, 1, jsonData));
+
+			try {
+				WorldXMLLoader.loadChapterScenes(instance.currentChapter, instance);
+			} catch (Exception e) {
+				throw new GdxRuntimeException("Error loading chapter: " + instance.currentChapter, e);
+			}
+
+			HashMap<String, Scene> savedScenes = json.readValue("scenes", HashMap.class, Scene.class, jsonData);
+			instance.scenes.putAll(savedScenes);
+		} else {
+			instance.scenes = json.readValue("scenes", HashMap.class, Scene.class, jsonData);
+		}
+
 		instance.currentScene = instance.scenes.get(json.readValue("currentScene", String.class, jsonData));
 		instance.inventory = json.readValue("inventory", Inventory.class, jsonData);
 
@@ -690,8 +919,6 @@ public class World implements Serializable, AssetConsumer {
 
 		transition = json.readValue("transition", Transition.class, jsonData);
 
-		instance.currentChapter = json.readValue("chapter", String.class, jsonData);
-
 		ActionCallbackQueue.read(json, jsonData);
 
 		I18N.loadChapter(EngineAssetManager.MODEL_DIR + instance.currentChapter);
@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.pathfinder;
+
+import java.util.Arrays;
+
+import com.bladecoder.engine.pathfinder.AStarPathFinder.AStarHeuristicCalculator;
+
+/**
+ * AStar path finder that does not allocate memory when searching.
+ * <p>
+ * The search data is stored in primitive arrays indexed by
+ * {@link NavNode#index}, so the graph must give each node an unique index
+ * before searching. The arrays only grow when a bigger index is found.
+ * </p>
+ * 
+ * @author rgarcia
+ */
+public class IndexedAStarPathFinder<N extends NavNode> implements NavContext<N>, PathFinder {
+	private static final byte UNVISITED = 0;
+	private static final byte OPEN = 1;
+	private static final byte CLOSED = 2;
+
+	/** The graph being searched */
+	private final NavGraph<N> graph;
+	/** The maximum depth of search we're willing to accept before giving up */
+	private final int maxSearchDistance;
+	/** The heuristic we're applying to determine which nodes to search first */
+	private final AStarHeuristicCalculator<N> heuristicCalculator;
+
+	/** The mover going through the path */
+	private Object mover;
+	/** The distance searched so far */
+	private int distance;
+	/** Unique ID for each search run. Used to know if the node data is valid. */
+	private int searchId;
+	/** The current source node in the context */
+	private N sourceNodeInContext;
+
+	private NavNode[] nodes = new NavNode[0];
+	private int[] searchIds = new int[0];
+	private byte[] state = new byte[0];
+	private float[] g = new float[0];
+	private float[] f = new float[0];
+	private int[] parent = new int[0];
+	private int[] depth = new int[0];
+
+	/** Binary heap of node indexes ordered by 'f' */
+	private int[] heap = new int[0];
+	private int[] heapPos = new int[0];
+	private int heapSize;
+
+	public IndexedAStarPathFinder(NavGraph<N> graph, int maxSearchDistance, AStarHeuristicCalculator<N> heuristic) {
+		this.heuristicCalculator = heuristic;
+		this.graph = graph;
+		this.maxSearchDistance = maxSearchDistance;
+	}
+
+	// PathFinder uses the raw NavNode and NavPath types
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public boolean findPath(Object mover, NavNode startNode, NavNode targetNode, NavPath out) {
+		this.mover = mover;
+		distance = 0;
+
+		if (isBlocked(targetNode, targetNode))
+			return false;
+
+		searchId++;
+		if (searchId < 0)
+			searchId = 1;
+
+		heapSize = 0;
+
+		int start = visit(startNode);
+		int target = visit(targetNode);
+
+		state[start] = OPEN;
+		push(start);
+
+		int current = -1;
+		int maxDepth = 0;
+		while (maxDepth < maxSearchDistance && heapSize != 0) {
+			int last = current;
+			current = pop();
+			state[current] = CLOSED;
+			distance = depth[current];
+
+			if (current == target && last != -1 && !isBlocked(nodes[last], targetNode))
+				break;
+
+			NavNode currentNode = nodes[current];
+			float currentCost = g[current];
+
+			for (int i = 0; i < currentNode.neighbors.size; i++) {
+				NavNode neighborNode = currentNode.neighbors.get(i);
+
+				if (isBlocked(currentNode, neighborNode))
+					continue;
+
+				int n = visit(neighborNode);
+
+				sourceNodeInContext = (N) startNode;
+				float nextStepCost = currentCost + graph.getCost(this, (N) neighborNode);
+
+				if (state[n] == UNVISITED || nextStepCost < g[n]) {
+					g[n] = nextStepCost;
+					f[n] = nextStepCost + heuristicCalculator.getCost(this, mover, (N) neighborNode, (N) targetNode);
+					depth[n] = depth[current] + 1;
+					parent[n] = current;
+					maxDepth = Math.max(maxDepth, depth[n]);
+
+					if (state[n] == OPEN) {
+						siftUp(heapPos[n]);
+					} else {
+						state[n] = OPEN;
+						push(n);
+					}
+				}
+			}
+		}
+
+		boolean pathFound = parent[target] != -1;
+
+		if (pathFound) {
+			// Set the parent references used by NavPath.fill()
+			for (int i = target; i != start; i = parent[i])
+				nodes[i].parent = nodes[parent[i]];
+
+			out.fill(startNode, targetNode);
+		}
+
+		return pathFound;
+	}
+
+	/**
+	 * Resets the search data of the node if it has not been used in this run.
+	 * 
+	 * @return the node index
+	 */
+	private int visit(NavNode node) {
+		int i = node.index;
+
+		if (i >= searchIds.length)
+			grow(i + 1);
+
+		if (searchIds[i] != searchId) {
+			searchIds[i] = searchId;
+			nodes[i] = node;
+			state[i] = UNVISITED;
+			g[i] = 0;
+			f[i] = 0;
+			depth[i] = 0;
+			parent[i] = -1;
+		}
+
+		return i;
+	}
+
+	private void grow(int size) {
+		size = Math.max(size, searchIds.length * 2);
+
+		nodes = Arrays.copyOf(nodes, size);
+		searchIds = Arrays.copyOf(searchIds, size);
+		state = Arrays.copyOf(state, size);
+		g = Arrays.copyOf(g, size);
+		f = Arrays.copyOf(f, size);
+		parent = Arrays.copyOf(parent, size);
+		depth = Arrays.copyOf(depth, size);
+		heap = Arrays.copyOf(heap, size);
+		heapPos = Arrays.copyOf(heapPos, size);
+	}
+
+	private void push(int n) {
+		heap[heapSize] = n;
+		heapPos[n] = heapSize;
+		heapSize++;
+		siftUp(heapSize - 1);
+	}
+
+	private int pop() {
+		int result = heap[0];
+
+		heapSize--;
+
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapPos[heap[0]] = 0;
+			siftDown(0);
+		}
+
+		return result;
+	}
+
+	private void siftUp(int pos) {
+		int n = heap[pos];
+		float value = f[n];
+
+		while (pos > 0) {
+			int parentPos = (pos - 1) >> 1;
+			int p = heap[parentPos];
+
+			if (value >= f[p])
+				break;
+
+			heap[pos] = p;
+			heapPos[p] = pos;
+			pos = parentPos;
+		}
+
+		heap[pos] = n;
+		heapPos[n] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int n = heap[pos];
+		float value = f[n];
+
+		while (true) {
+			int child = (pos << 1) + 1;
+
+			if (child >= heapSize)
+				break;
+
+			if (child + 1 < heapSize && f[heap[child + 1]] < f[heap[child]])
+				child++;
+
+			if (value <= f[heap[child]])
+				break;
+
+			heap[pos] = heap[child];
+			heapPos[heap[pos]] = pos;
+			pos = child;
+		}
+
+		heap[pos] = n;
+		heapPos[n] = pos;
+	}
+
+	/** Ask the graph if the way from start to target node is blocked. */
+	@SuppressWarnings("unchecked")
+	private boolean isBlocked(NavNode startNode, NavNode targetNode) {
+		sourceNodeInContext = (N) startNode;
+		return graph.blocked(this, (N) targetNode);
+	}
+
+	@Override
+	public Object getMover() {
+		return mover;
+	}
+
+	@Override
+	public float getSearchDistance() {
+		return distance;
+	}
+
+	@Override
+	public N getSourceNode() {
+		return sourceNodeInContext;
+	}
+}
@@ -25,6 +25,8 @@ public class NavNode {
 	public NavNode parent;
 	/** The list of all adjacent neighbor nodes. */
 	public final Array<NavNode> neighbors = new Array<NavNode>();
+	/** Index of the node in the graph. Used by the IndexedAStarPathFinder. */
+	public int index;
 	/** Algorithm specific data. */
 	protected Object algoData;
 }
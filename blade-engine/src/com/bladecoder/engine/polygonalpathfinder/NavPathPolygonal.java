@@ -27,22 +27,42 @@ import com.bladecoder.engine.pathfinder.NavPath;
  * @author rgarcia 
  */
 public class NavPathPolygonal implements NavPath<NavNodePolygonal> {
-	private final ArrayList<Vector2> resultPath = new ArrayList<Vector2>();
+	private ArrayList<Vector2> resultPath = new ArrayList<Vector2>();
 
 	@Override
 	public void fill (NavNodePolygonal startNode, NavNodePolygonal targetNode) {
+		int length = 1;
 		
-		// TODO Ineficcient add in index 0 and new
+		for (NavNodePolygonal current = targetNode; current != startNode; current = (NavNodePolygonal)current.parent)
+			length++;
 		
-		resultPath.clear();
+		setLength(length);
 		
 		NavNodePolygonal current = targetNode;
-		while (current != startNode) {
-			resultPath.add(0, new Vector2(current.getX(), current.getY()));
+		
+		for (int i = length - 1; i >= 0; i--) {
+			resultPath.get(i).set(current.getX(), current.getY());
 			current = (NavNodePolygonal)current.parent;
 		}
+	}
+	
+	/**
+	 * Sets the list where the path is written. The Vector2 instances in the
+	 * list are reused.
+	 */
+	public void setPath(ArrayList<Vector2> path) {
+		resultPath = path;
+	}
+	
+	/**
+	 * Resizes the path. Only creates new points when the path grows.
+	 */
+	public void setLength(int length) {
+		while (resultPath.size() > length)
+			resultPath.remove(resultPath.size() - 1);
 		
-		resultPath.add(0, new Vector2(current.getX(), current.getY()));
+		while (resultPath.size() < length)
+			resultPath.add(new Vector2());
 	}
 
 	@Override
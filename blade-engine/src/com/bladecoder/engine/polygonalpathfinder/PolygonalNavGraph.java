@@ -16,17 +16,23 @@
 package com.bladecoder.engine.polygonalpathfinder;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.Json.Serializable;
 import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.LongMap;
 import com.bladecoder.engine.assets.EngineAssetManager;
-import com.bladecoder.engine.pathfinder.AStarPathFinder;
+import com.bladecoder.engine.pathfinder.IndexedAStarPathFinder;
 import com.bladecoder.engine.pathfinder.NavContext;
 import com.bladecoder.engine.pathfinder.NavGraph;
+import com.bladecoder.engine.pathfinder.NavNode;
 import com.bladecoder.engine.pathfinder.PathFinder;
+import com.bladecoder.engine.util.Config;
 import com.bladecoder.engine.util.EngineLogger;
 import com.bladecoder.engine.util.PolygonUtils;
 
@@ -44,25 +50,71 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 	private ArrayList<Polygon> obstacles = new ArrayList<Polygon>();
 	private ArrayList<Polygon> dinamicObstacles = new ArrayList<Polygon>();
 
-	final private PathFinder pathfinder = new AStarPathFinder(this, 100,
+	final private PathFinder pathfinder = new IndexedAStarPathFinder<NavNodePolygonal>(this, 100,
 			new ManhattanDistance());
 	final private NavPathPolygonal resultPath = new NavPathPolygonal();
 	final private NavNodePolygonal startNode = new NavNodePolygonal();
 	final private NavNodePolygonal targetNode = new NavNodePolygonal();
+	final private Vector2 source = new Vector2();
+	final private Vector2 target = new Vector2();
 	final private ArrayList<NavNodePolygonal> graphNodes = new ArrayList<NavNodePolygonal>();
 
+	/** Nodes of the walkzone and the obstacles */
+	final private ArrayList<NavNodePolygonal> staticNodes = new ArrayList<NavNodePolygonal>();
+
+	/**
+	 * Precalculated line of sights between static nodes stored as pairs of
+	 * indexes.
+	 */
+	final private IntArray staticEdges = new IntArray();
+	private int staticSignature;
+
+	/** Visibility graph read from the saved state */
+	private IntArray serializedEdges;
+	private int serializedSignature;
+
+	final private HashMap<Polygon, ArrayList<NavNodePolygonal>> dinamicNodes = new HashMap<Polygon, ArrayList<NavNodePolygonal>>();
+
+	/** Size of the cells used to quantize the source and target of the cached paths */
+	private static final float PATH_CACHE_CELL_SIZE = 8f;
+	private static final int PATH_CACHE_MAX_SIZE = 64;
+
+	/**
+	 * Intermediate points of the paths found, by source and target cell. It is
+	 * cleared when the static graph changes or a dynamic obstacle is removed,
+	 * because any cached detour can be shorter now. Added dynamic obstacles
+	 * only invalidate the paths that pass through their bounds.
+	 */
+	final private LongMap<float[]> pathCache = new LongMap<float[]>();
+	private float clipT0, clipT1;
+
+	private boolean smoothPath = false;
+
 	public ArrayList<Vector2> findPath(float sx, float sy, float tx, float ty) {
-		resultPath.clear();
+		return findPath(sx, sy, tx, ty, new ArrayList<Vector2>());
+	}
+
+	/**
+	 * Finds the path without allocating memory once the graph and the out
+	 * list have grown to their working size.
+	 * 
+	 * @param out
+	 *            The list where the path is written. Its points are reused.
+	 * @return The out list. Empty if there is no path.
+	 */
+	public ArrayList<Vector2> findPath(float sx, float sy, float tx, float ty, ArrayList<Vector2> out) {
+		resultPath.setPath(out);
 
-		Vector2 source = new Vector2(sx, sy);
-		Vector2 target = new Vector2(tx, ty);
+		Vector2 source = this.source.set(sx, sy);
+		Vector2 target = this.target.set(tx, ty);
 
 		// 1. First verify if both the start and target points of the path are
 		// inside the polygon. If the end point is outside the polygon clamp it
 		// back inside.
 		if (!PolygonUtils.isPointInside(walkZone, sx, sy, true)) {
 			EngineLogger.debug("PolygonalPathFinder: Source not in polygon!");
-			return resultPath.getPath();
+			resultPath.clear();
+			return out;
 		}
 
 		if (!PolygonUtils.isPointInside(walkZone, tx, ty, true)) {
@@ -109,24 +161,167 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 		if (inLineOfSight(source.x, source.y, target.x, target.y)) {
 			EngineLogger.debug("PolygonalPathFinder: Direct path found");
 
-			resultPath.getPath().add(source);
-			resultPath.getPath().add(target);
+			resultPath.setLength(2);
+			out.get(0).set(source);
+			out.get(1).set(target);
+
+			return out;
+		}
+
+		// 3. Reuse the path found from the same cells if the new source and
+		// target can see it
+		long key = getPathCacheKey(source, target);
+		float[] cached = pathCache.get(key);
+
+		if (cached != null
+				&& inLineOfSight(source.x, source.y, cached[0], cached[1])
+				&& inLineOfSight(cached[cached.length - 2], cached[cached.length - 1], target.x, target.y)) {
+			resultPath.setLength(cached.length / 2 + 2);
+			out.get(0).set(source);
+
+			for (int i = 0; i < cached.length; i += 2)
+				out.get(i / 2 + 1).set(cached[i], cached[i + 1]);
 
-			return resultPath.getPath();
+			out.get(out.size() - 1).set(target);
+
+			return out;
 		}
 
-		// 3. Otherwise, add the start and end points of your path as new
+		// 4. Otherwise, add the start and end points of your path as new
 		// temporary nodes to the graph.
 		// AND Connect them to every other node that they can see on the graph.
 		addStartEndNodes(source.x, source.y, target.x, target.y);
 
 		// 5. Run your A* implementation on the graph to get your path. This
 		// path is guaranteed to be as direct as possible!
-		pathfinder.findPath(null, startNode, targetNode, resultPath);
+		for (int i = 0; i < graphNodes.size(); i++)
+			graphNodes.get(i).index = i;
+
+		startNode.index = graphNodes.size();
+		targetNode.index = graphNodes.size() + 1;
+
+		if (!pathfinder.findPath(null, startNode, targetNode, resultPath)) {
+			resultPath.clear();
+
+			return out;
+		}
+
+		// 6. Remove the points not needed to walk in straight lines
+		if (smoothPath)
+			smoothPath(out);
 
-		return resultPath.getPath();
+		if (out.size() > 2) {
+			if (pathCache.size >= PATH_CACHE_MAX_SIZE)
+				pathCache.clear();
+
+			cached = new float[(out.size() - 2) * 2];
+
+			for (int i = 1; i < out.size() - 1; i++) {
+				cached[(i - 1) * 2] = out.get(i).x;
+				cached[(i - 1) * 2 + 1] = out.get(i).y;
+			}
+
+			pathCache.put(key, cached);
+		}
+
+		return out;
 	}
 	
+	/**
+	 * String pulling. Skips the points of the path that can be reached in
+	 * straight line from the previous kept point.
+	 */
+	private void smoothPath(ArrayList<Vector2> path) {
+		int last = 0;
+
+		for (int i = 1; i < path.size() - 1; i++) {
+			Vector2 anchor = path.get(last);
+			Vector2 next = path.get(i + 1);
+
+			if (!inLineOfSight(anchor.x, anchor.y, next.x, next.y)) {
+				last++;
+				path.get(last).set(path.get(i));
+			}
+		}
+
+		last++;
+		path.get(last).set(path.get(path.size() - 1));
+		resultPath.setLength(last + 1);
+	}
+
+	/**
+	 * Removes the cached paths with intermediate points or segments touching
+	 * the polygon bounds. The first and last segments are checked when the
+	 * cached path is used.
+	 */
+	private void invalidatePathCache(Polygon poly) {
+		if (pathCache.size == 0)
+			return;
+
+		Rectangle r = poly.getBoundingRectangle();
+
+		LongMap.Values<float[]> paths = pathCache.values();
+
+		while (paths.hasNext()) {
+			float[] p = paths.next();
+
+			for (int i = 0; i < p.length; i += 2) {
+				int j = Math.min(i + 2, p.length - 2);
+
+				if (segmentTouchesRect(p[i], p[i + 1], p[j], p[j + 1], r)) {
+					paths.remove();
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Liang-Barsky clipping. Points on the rectangle border touch it.
+	 */
+	private boolean segmentTouchesRect(float x1, float y1, float x2, float y2, Rectangle r) {
+		float dx = x2 - x1;
+		float dy = y2 - y1;
+
+		clipT0 = 0;
+		clipT1 = 1;
+
+		return clip(-dx, x1 - r.x) && clip(dx, r.x + r.width - x1) && clip(-dy, y1 - r.y)
+				&& clip(dy, r.y + r.height - y1);
+	}
+
+	private boolean clip(float p, float q) {
+		if (p == 0)
+			return q >= 0;
+
+		float t = q / p;
+
+		if (p < 0) {
+			if (t > clipT1)
+				return false;
+
+			if (t > clipT0)
+				clipT0 = t;
+		} else {
+			if (t < clipT0)
+				return false;
+
+			if (t < clipT1)
+				clipT1 = t;
+		}
+
+		return true;
+	}
+
+	private static long getPathCacheKey(Vector2 source, Vector2 target) {
+		long sx = (int) (source.x / PATH_CACHE_CELL_SIZE) & 0xffff;
+		long sy = (int) (source.y / PATH_CACHE_CELL_SIZE) & 0xffff;
+		long tx = (int) (target.x / PATH_CACHE_CELL_SIZE) & 0xffff;
+		long ty = (int) (target.y / PATH_CACHE_CELL_SIZE) & 0xffff;
+
+		return sx << 48 | sy << 32 | tx << 16 | ty;
+	}
+
 	/**
 	 * Search the first polygon vertex inside the walkzone.
 	 * 
@@ -146,15 +341,64 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 		}		
 	}
 
+	/**
+	 * Creates the graph. The visibility between the walkzone and obstacle
+	 * nodes is only calculated when the walkzone or the obstacles change, and
+	 * it is also restored from the serialized state.
+	 */
 	public void createInitialGraph() {
+		int signature = calcSignature();
+
+		smoothPath = Config.getProperty(Config.PATH_SMOOTHING_PROP, smoothPath);
+		pathCache.clear();
+
+		if (staticNodes.size() == 0 || signature != staticSignature)
+			createStaticGraph(signature);
+
+		// Connect the static nodes and add the dinamic obstacles
 		graphNodes.clear();
+		dinamicNodes.clear();
+
+		for (NavNodePolygonal n : staticNodes) {
+			n.neighbors.clear();
+			graphNodes.add(n);
+		}
+
+		for (int i = 0; i < staticEdges.size; i += 2) {
+			NavNodePolygonal n1 = staticNodes.get(staticEdges.get(i));
+			NavNodePolygonal n2 = staticNodes.get(staticEdges.get(i + 1));
+
+			if (inDinamicLineOfSight(n1.x, n1.y, n2.x, n2.y)) {
+				n1.neighbors.add(n2);
+				n2.neighbors.add(n1);
+			}
+		}
+
+		for (Polygon p : dinamicObstacles)
+			addObstacleToGrapth(p);
+	}
+
+	/**
+	 * Calculates the visibility graph between the walkzone and obstacle nodes
+	 * without the dinamic obstacles. Used to store it in the compiled
+	 * chapters.
+	 */
+	public void createStaticGraph() {
+		int signature = calcSignature();
+
+		if (staticNodes.size() == 0 || signature != staticSignature)
+			createStaticGraph(signature);
+	}
+
+	private void createStaticGraph(int signature) {
+		staticNodes.clear();
 
 		// 1.- Add WalkZone convex nodes
 		float verts[] = walkZone.getTransformedVertices();
 
 		for (int i = 0; i < verts.length; i += 2) {
 			if (!PolygonUtils.isVertexConcave(walkZone, i)) {
-				graphNodes.add(new NavNodePolygonal(verts[i], verts[i + 1]));
+				staticNodes.add(new NavNodePolygonal(verts[i], verts[i + 1]));
 			}
 		}
 
@@ -166,32 +410,75 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 				if (PolygonUtils.isVertexConcave(o, i)
 						&& PolygonUtils.isPointInside(walkZone, verts[i],
 								verts[i + 1], false)) {
-					graphNodes
+					staticNodes
 							.add(new NavNodePolygonal(verts[i], verts[i + 1]));
 				}
 			}
 		}
 
-		// 3.- CALC LINE OF SIGHTs
-		for (int i = 0; i < graphNodes.size() - 1; i++) {
-			NavNodePolygonal n1 = graphNodes.get(i);
+		staticSignature = signature;
 
-			for (int j = i + 1; j < graphNodes.size(); j++) {
-				NavNodePolygonal n2 = graphNodes.get(j);
+		// 3.- Use the serialized LINE OF SIGHTs if they are still valid
+		if (serializedEdges != null && serializedSignature == signature) {
+			staticEdges.clear();
+			staticEdges.addAll(serializedEdges);
+			serializedEdges = null;
 
-				if (inLineOfSight(n1.x, n1.y, n2.x, n2.y)) {
-					n1.neighbors.add(n2);
-					n2.neighbors.add(n1);
+			EngineLogger.debug("PolygonalNavGraph: Visibility graph restored");
+
+			return;
+		}
+
+		serializedEdges = null;
+
+		// 4.- CALC LINE OF SIGHTs
+		staticEdges.clear();
+
+		for (int i = 0; i < staticNodes.size() - 1; i++) {
+			NavNodePolygonal n1 = staticNodes.get(i);
+
+			for (int j = i + 1; j < staticNodes.size(); j++) {
+				NavNodePolygonal n2 = staticNodes.get(j);
+
+				if (inStaticLineOfSight(n1.x, n1.y, n2.x, n2.y)) {
+					staticEdges.add(i);
+					staticEdges.add(j);
 				}
 			}
 		}
-		
-		// 4.- ADD DINAMIC OBSTACLES
-		for(Polygon p:dinamicObstacles)
-			addObstacleToGrapth(p);
+	}
+
+	/**
+	 * Hash of the walkzone and obstacle geometry. Used to know when the
+	 * visibility graph must be recalculated.
+	 */
+	private int calcSignature() {
+		int h = hashVertices(17, walkZone);
+
+		for (Polygon o : obstacles)
+			h = hashVertices(h, o);
+
+		return h;
+	}
+
+	private static int hashVertices(int h, Polygon p) {
+		float verts[] = p.getTransformedVertices();
+
+		h = 31 * h + verts.length;
+
+		for (int i = 0; i < verts.length; i++)
+			h = 31 * h + Float.floatToIntBits(verts[i]);
+
+		return h;
 	}
 
 	private boolean inLineOfSight(float p1X, float p1Y, float p2X, float p2Y) {
+		return inStaticLineOfSight(p1X, p1Y, p2X, p2Y)
+				&& inDinamicLineOfSight(p1X, p1Y, p2X, p2Y);
+	}
+
+	private boolean inStaticLineOfSight(float p1X, float p1Y, float p2X,
+			float p2Y) {
 
 		tmp.set(p1X, p1Y);
 		tmp2.set(p2X, p2Y);
@@ -205,7 +492,16 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 				return false;
 			}
 		}
-		
+
+		return true;
+	}
+
+	private boolean inDinamicLineOfSight(float p1X, float p1Y, float p2X,
+			float p2Y) {
+
+		tmp.set(p1X, p1Y);
+		tmp2.set(p2X, p2Y);
+
 		for (Polygon o : dinamicObstacles) {
 			if (!PolygonUtils.inLineOfSight(tmp, tmp2, o, true)) {
 				return false;
@@ -215,6 +511,14 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 		return true;
 	}
 
+	private static boolean crosses(NavNodePolygonal n1, NavNodePolygonal n2,
+			Polygon poly) {
+		tmp.set(n1.x, n1.y);
+		tmp2.set(n2.x, n2.y);
+
+		return !PolygonUtils.inLineOfSight(tmp, tmp2, poly, true);
+	}
+
 	private void addStartEndNodes(float sx, float sy, float tx, float ty) {
 		startNode.x = sx;
 		startNode.y = sy;
@@ -223,31 +527,48 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 
 		startNode.neighbors.clear();
 
-		for (NavNodePolygonal n : graphNodes) {
-
+		// Only the nodes connected in the previous search have the target
+		for (NavNode n : targetNode.neighbors)
 			n.neighbors.removeValue(targetNode, true);
 
+		targetNode.neighbors.clear();
+
+		for (NavNodePolygonal n : graphNodes) {
 			if (inLineOfSight(startNode.x, startNode.y, n.x, n.y)) {
 				startNode.neighbors.add(n);
 			}
 
 			if (inLineOfSight(targetNode.x, targetNode.y, n.x, n.y)) {
 				n.neighbors.add(targetNode);
+				// Back reference to clean the graph in the next search. The
+				// path finder never expands the target node.
+				targetNode.neighbors.add(n);
 			}
 		}
 
 	}
 
+	public boolean isSmoothPath() {
+		return smoothPath;
+	}
+
+	public void setSmoothPath(boolean smoothPath) {
+		this.smoothPath = smoothPath;
+		pathCache.clear();
+	}
+
 	public Polygon getWalkZone() {
 		return walkZone;
 	}
 
 	public void setWalkZone(Polygon walkZone) {
 		this.walkZone = walkZone;
+		staticNodes.clear();
 	}
 
 	public void addObstacle(Polygon obstacle) {
 		obstacles.add(obstacle);
+		staticNodes.clear();
 	}
 
 	public ArrayList<Polygon> getObstacles() {
@@ -271,6 +592,8 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 	}
 	
 	private void addObstacleToGrapth(Polygon poly) {
+		ArrayList<NavNodePolygonal> nodes = new ArrayList<NavNodePolygonal>();
+
 		float verts[] = poly.getTransformedVertices();
 		for (int i = 0; i < verts.length; i += 2) {
 			if (PolygonUtils.isVertexConcave(poly, i)
@@ -288,8 +611,11 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 				}
 				
 				graphNodes.add(n1);
+				nodes.add(n1);
 			}
-		}		
+		}
+		
+		dinamicNodes.put(poly, nodes);
 	}
 
 	public void addDinamicObstacle(Polygon poly) {
@@ -299,6 +625,23 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 		// CHECK TO AVOID ADDING THE ACTOR SEVERAL TIMES
 		if(idx == -1) {
 			dinamicObstacles.add(poly);
+			invalidatePathCache(poly);
+			
+			if(graphNodes.size() == 0)
+				return;
+			
+			// Remove the line of sights blocked by the new obstacle
+			for (NavNodePolygonal n : graphNodes) {
+				for (int i = n.neighbors.size - 1; i >= 0; i--) {
+					NavNodePolygonal n2 = (NavNodePolygonal) n.neighbors.get(i);
+
+					if (crosses(n, n2, poly)) {
+						n.neighbors.removeIndex(i);
+						n2.neighbors.removeValue(n, true);
+					}
+				}
+			}
+			
 			addObstacleToGrapth(poly);
 		}
 	}
@@ -309,23 +652,45 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 		if(!exists)
 			return false;
 		
-		float verts[] = poly.getTransformedVertices();
-
-		for (int i = 0; i < verts.length; i += 2) {
-			if (PolygonUtils.isVertexConcave(poly, i)
-					&& PolygonUtils.isPointInside(walkZone, verts[i],
-							verts[i + 1], false)) {
-				for (int j = 0; j < graphNodes.size(); j++) {
-					NavNodePolygonal n = graphNodes.get(j);
-
-					if (n.x == verts[i] && n.y == verts[i+1]) {
-						graphNodes.remove(n);
-						j--;
-						
-						for(NavNodePolygonal n2:graphNodes) {
-							n2.neighbors.removeValue(n, true);
-						}
-						
+		// Any cached path, not only the ones near the obstacle, can have a
+		// shorter route now
+		pathCache.clear();
+		
+		ArrayList<NavNodePolygonal> nodes = dinamicNodes.remove(poly);
+		
+		if(nodes == null)
+			return true;
+		
+		for(NavNodePolygonal n: nodes) {
+			graphNodes.remove(n);
+			
+			for(NavNode n2: n.neighbors)
+				n2.neighbors.removeValue(n, true);
+			
+			n.neighbors.clear();
+		}
+		
+		// Restore the static line of sights blocked by the obstacle
+		for (int i = 0; i < staticEdges.size; i += 2) {
+			NavNodePolygonal n1 = staticNodes.get(staticEdges.get(i));
+			NavNodePolygonal n2 = staticNodes.get(staticEdges.get(i + 1));
+
+			if (crosses(n1, n2, poly) && inDinamicLineOfSight(n1.x, n1.y, n2.x, n2.y)
+					&& !n1.neighbors.contains(n2, true)) {
+				n1.neighbors.add(n2);
+				n2.neighbors.add(n1);
+			}
+		}
+		
+		// Restore the line of sights of the other dinamic obstacles
+		for (ArrayList<NavNodePolygonal> dn : dinamicNodes.values()) {
+			for (NavNodePolygonal n1 : dn) {
+				for (NavNodePolygonal n2 : graphNodes) {
+					if (n1 != n2 && crosses(n1, n2, poly)
+							&& !n1.neighbors.contains(n2, true)
+							&& inLineOfSight(n1.x, n1.y, n2.x, n2.y)) {
+						n1.neighbors.add(n2);
+						n2.neighbors.add(n1);
 					}
 				}
 			}
@@ -350,6 +715,11 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 		}
 		
 		json.writeValue("obstacles", tmp, ArrayList.class, Polygon.class);
+		
+		if(staticNodes.size() > 0) {
+			json.writeValue("visibilitySignature", staticSignature);
+			json.writeValue("visibility", staticEdges.toArray());
+		}
 	}
 
 	@SuppressWarnings("unchecked")
@@ -370,5 +740,10 @@ public class PolygonalNavGraph implements NavGraph<NavNodePolygonal>, Serializab
 			poly.setPosition(poly.getX() * worldScale , 
 					poly.getY() * worldScale);
 		}
+		
+		if(jsonData.has("visibility")) {
+			serializedSignature = json.readValue("visibilitySignature", int.class, jsonData);
+			serializedEdges = new IntArray(json.readValue("visibility", int[].class, jsonData));
+		}
 	}
 }
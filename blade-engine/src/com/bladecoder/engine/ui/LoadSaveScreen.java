@@ -109,6 +109,9 @@ public class LoadSaveScreen implements BladeScreen {
 		else
 			loadScreenMode = false;
 
+		// The slot list reads the saved files
+		World.getInstance().waitForSaves();
+
 		stage = new Stage(new ScreenViewport());
 		
 		float pad = DPIUtils.getMarginSize();
@@ -314,7 +317,7 @@ public class LoadSaveScreen implements BladeScreen {
 			if (loadScreenMode == true) {
 				World.getInstance().loadGameState(event.getListenerActor().getName() + World.GAMESTATE_EXT);
 			} else {
-				World.getInstance().saveGameState(event.getListenerActor().getName() + World.GAMESTATE_EXT);
+				World.getInstance().saveGameStateAsync(event.getListenerActor().getName() + World.GAMESTATE_EXT);
 			}
 
 			ui.setCurrentScreen(Screens.SCENE_SCREEN);
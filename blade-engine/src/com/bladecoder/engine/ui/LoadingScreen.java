@@ -38,6 +38,9 @@ public class LoadingScreen implements BladeScreen {
 	private float squareHeight = 30f;
 	private float margin = 10f;
 	
+	private float progressWidth;
+	private float progressHeight = 4f;
+	
 	private float initTime = 0;
 	
 	private float delta = 0;
@@ -85,6 +88,14 @@ public class LoadingScreen implements BladeScreen {
 			else
 				RectangleRenderer.draw(ui.getBatch(), x + i * (squareWidth + margin), y, squareWidth, squareHeight, Color.GRAY);
 		}
+		
+		// Progress bar under the squares
+		float progress = World.getInstance().getLoadingProgress();
+		float py = y - margin - progressHeight;
+		
+		RectangleRenderer.draw(batch, x, py, progressWidth, progressHeight, Color.DARK_GRAY);
+		RectangleRenderer.draw(batch, x, py, progressWidth * progress, progressHeight, Color.WHITE);
+		
 		batch.end();
 	}
 	
@@ -101,7 +112,9 @@ public class LoadingScreen implements BladeScreen {
 	public void resize(int width, int height) {
 		viewport.update(width, height, true);
 		
-		x = (viewport.getWorldWidth() - (squareWidth * numSquares + margin * (numSquares -1))) / 2; 
+		progressWidth = squareWidth * numSquares + margin * (numSquares -1);
+		
+		x = (viewport.getWorldWidth() - progressWidth) / 2; 
 		y = (viewport.getWorldHeight() - squareHeight) / 2;
 	}
 
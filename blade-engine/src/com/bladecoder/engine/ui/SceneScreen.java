@@ -35,9 +35,11 @@ import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import com.bladecoder.engine.assets.EngineAssetManager;
 import com.bladecoder.engine.i18n.I18N;
 import com.bladecoder.engine.model.BaseActor;
 import com.bladecoder.engine.model.Scene;
+import com.bladecoder.engine.model.SceneLayer;
 import com.bladecoder.engine.model.Transition;
 import com.bladecoder.engine.model.Verb;
 import com.bladecoder.engine.model.World;
@@ -46,6 +48,7 @@ import com.bladecoder.engine.ui.UI.Screens;
 import com.bladecoder.engine.util.Config;
 import com.bladecoder.engine.util.DPIUtils;
 import com.bladecoder.engine.util.EngineLogger;
+import com.bladecoder.engine.util.FrameProfiler;
 import com.bladecoder.engine.util.RectangleRenderer;
 
 public class SceneScreen implements BladeScreen {
@@ -230,6 +233,13 @@ public class SceneScreen implements BladeScreen {
 					getRecorder().setPlaying(true);
 				}
 				break;
+			case 'o':
+				FrameProfiler.setEnabled(!FrameProfiler.isEnabled());
+				break;
+			case 'x':
+				FrameProfiler.exportCSV(EngineAssetManager.getInstance().getUserFile(
+						"profiler-" + System.currentTimeMillis() + ".csv"));
+				break;
 			case 'p':
 				if (World.getInstance().isPaused()) {
 					World.getInstance().resume();
@@ -482,13 +492,18 @@ public class SceneScreen implements BladeScreen {
 	public void render(float delta) {
 		World w = World.getInstance();
 
+		FrameProfiler.begin(FrameProfiler.FRAME);
+
 		update(delta);
 
 		// Gdx.gl.glClearColor(0, 0, 0, 1);
 		// Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
-		if (w.getAssetState() != AssetState.LOADED)
+		if (w.getAssetState() != AssetState.LOADED) {
+			FrameProfiler.end(FrameProfiler.FRAME);
+			FrameProfiler.endFrame();
 			return;
+		}
 
 		SpriteBatch batch = ui.getBatch();
 
@@ -506,7 +521,12 @@ public class SceneScreen implements BladeScreen {
 		}
 
 		// STAGE
+		FrameProfiler.begin(FrameProfiler.STAGE_DRAW);
 		stage.draw();
+		FrameProfiler.end(FrameProfiler.STAGE_DRAW);
+
+		if (stage.getBatch() instanceof SpriteBatch)
+			FrameProfiler.addRenderCalls(((SpriteBatch) stage.getBatch()).renderCalls);
 
 		// SCREEN CAMERA
 		batch.setProjectionMatrix(viewport.getCamera().combined);
@@ -531,7 +551,14 @@ public class SceneScreen implements BladeScreen {
 		if (drawHotspots)
 			drawHotspots(batch);
 
+		if (FrameProfiler.isEnabled())
+			FrameProfiler.draw(batch, ui.getSkin().getFont("debug"), 0, 0, viewport.getScreenHeight() / 4);
+
 		batch.end();
+
+		FrameProfiler.addRenderCalls(batch.renderCalls);
+		FrameProfiler.end(FrameProfiler.FRAME);
+		FrameProfiler.endFrame();
 	}
 
 	private void drawDebugText(SpriteBatch batch) {
@@ -559,11 +586,24 @@ public class SceneScreen implements BladeScreen {
 			sbTmp.append(Gdx.graphics.getDensity());
 			sbTmp.append(" UI Multiplier:");
 			sbTmp.append(DPIUtils.getSizeMultiplier());
+			sbTmp.append(" ZSorts:");
+			sbTmp.append(w.getCurrentScene().getResortCount());
 
 			if (w.getCurrentScene().getPlayer() != null) {
 				sbTmp.append(" Depth Scl: ");
 				sbTmp.append(w.getCurrentScene().getFakeDepthScale(unprojectTmp.y));
 			}
+
+			// render calls / texture switches per layer
+			sbTmp.append(" Layers:");
+
+			for (SceneLayer l : w.getCurrentScene().getLayers()) {
+				if (!l.isVisible())
+					continue;
+
+				sbTmp.append(' ').append(l.getName()).append('=');
+				sbTmp.append(l.getRenderCalls()).append('/').append(l.getTextureSwitches());
+			}
 			
 			color = Color.WHITE;
 		}
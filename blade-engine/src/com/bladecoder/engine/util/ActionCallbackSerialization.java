@@ -15,6 +15,9 @@
  ******************************************************************************/
 package com.bladecoder.engine.util;
 
+import java.util.IdentityHashMap;
+
+import com.badlogic.gdx.utils.IntMap;
 import com.bladecoder.engine.actions.Action;
 import com.bladecoder.engine.actions.ActionCallback;
 import com.bladecoder.engine.model.BaseActor;
@@ -28,10 +31,12 @@ import com.bladecoder.engine.model.World;
  * Helper class to serialize ActionCallbacks. An ActionCallback is an Action or
  * a Verb.
  * 
- * This class can generate an String from an ActionCallback to save to a file
- * and then locate the ActionCallback based in the generated String.
+ * Every ActionCallback gets an unique numeric id when registered. The verbs
+ * register themselves and their actions when loaded and save the ids with the
+ * game state, so the ids are kept between saves. The String generated to
+ * locate an ActionCallback is the numeric id.
  * 
- * The String generated to locate an ActionCallback is like:
+ * Old saved games locate the ActionCallbacks with Strings like:
  * 
  * For verbs: actorId#verbId
  * For actions: actorId#verbId#actionPos
@@ -44,66 +49,85 @@ import com.bladecoder.engine.model.World;
 public class ActionCallbackSerialization {
 	public static final String SEPARATION_SYMBOL = "#";
 
-	private static String find(ActionCallback cb, Verb v) {
-		String id = v.getId();
-
-		if (cb == v)
-			return id;
-
-		int pos = 0;
+	private static final IntMap<ActionCallback> callbacks = new IntMap<ActionCallback>();
+	private static final IdentityHashMap<ActionCallback, Integer> ids = new IdentityHashMap<ActionCallback, Integer>();
+	private static int nextId = 1;
+	private static boolean writeIds = true;
 
-		for (Action a : v.getActions()) {
-			if (cb == a) {
-				StringBuilder stringBuilder = new StringBuilder(id);
-				stringBuilder.append(SEPARATION_SYMBOL).append(pos);
+	/**
+	 * Registers the ActionCallback if it is not registered yet.
+	 * 
+	 * @return The ActionCallback id
+	 */
+	public static int register(ActionCallback cb) {
+		Integer id = ids.get(cb);
 
-				return stringBuilder.toString();
-			}
+		if (id != null)
+			return id;
 
-			pos++;
-		}
+		register(cb, nextId);
 
-		return null;
+		return nextId - 1;
 	}
 
-	private static String find(ActionCallback cb, BaseActor a) {
-		if (a == null)
-			return null;
-
-		String id = a.getId();
+	/**
+	 * Registers the ActionCallback with the given id. Used when reading the
+	 * saved ids.
+	 */
+	public static void register(ActionCallback cb, int id) {
+		ActionCallback old = callbacks.put(id, cb);
 
-		for (Verb v : a.getVerbManager().getVerbs().values()) {
-			String result = find(cb, v);
+		if (old != null && old != cb) {
+			EngineLogger.error("ActionCallback id already registered: " + id);
+			ids.remove(old);
+		}
 
-			if (result != null) {
-				StringBuilder stringBuilder = new StringBuilder(id);
-				stringBuilder.append(SEPARATION_SYMBOL).append(result);
+		Integer oldId = ids.put(cb, id);
 
-				return stringBuilder.toString();
-			}
-		}
+		if (oldId != null && oldId != id)
+			callbacks.remove(oldId);
 
-		return null;
+		if (id >= nextId)
+			nextId = id + 1;
 	}
 
-	private static String find(ActionCallback cb, Scene s) {
-		if (s == null)
-			return null;
-
-		String id = s.getId();
+	/**
+	 * When false, the verbs don't write the ids of their ActionCallbacks. Used
+	 * when the state is not a saved game, like the compiled chapters, to let
+	 * the ids be given when loaded.
+	 */
+	public static void setWriteIds(boolean v) {
+		writeIds = v;
+	}
 
-		for (Verb v : s.getVerbManager().getVerbs().values()) {
-			String result = find(cb, v);
+	public static boolean isWriteIds() {
+		return writeIds;
+	}
 
-			if (result != null) {
-				StringBuilder stringBuilder = new StringBuilder(id);
-				stringBuilder.append(SEPARATION_SYMBOL).append(result);
+	/**
+	 * @return The id that will be given to the next registered ActionCallback
+	 */
+	public static int getNextId() {
+		return nextId;
+	}
 
-				return stringBuilder.toString();
-			}
-		}
+	/**
+	 * Ensures that the next registered ActionCallbacks get ids greater or equal
+	 * than the given one. Used to avoid clashes with the ids read from a saved
+	 * game.
+	 */
+	public static void reserveIds(int next) {
+		if (next > nextId)
+			nextId = next;
+	}
 
-		return null;
+	/**
+	 * Removes all the registered ActionCallbacks. Called when a new chapter or
+	 * game state is loaded.
+	 */
+	public static void clear() {
+		callbacks.clear();
+		ids.clear();
 	}
 
 	/**
@@ -113,42 +137,10 @@ public class ActionCallbackSerialization {
 	 * @return The generated location string
 	 */
 	public static String find(ActionCallback cb) {
-		String id = null;
-
 		if (cb == null)
 			return null;
 
-		// search in scene verbs
-		Scene s = World.getInstance().getCurrentScene();
-
-		id = find(cb, s);
-
-		if (id != null)
-			return id;
-
-		id = find(cb, s.getPlayer());
-		if (id != null)
-			return id;
-
-		// search in actors
-		for (BaseActor a : s.getActors().values()) {
-			id = find(cb, a);
-			if (id != null)
-				return id;
-		}
-
-		// search in worldVerbs
-		for (Verb v : VerbManager.getWorldVerbs().values()) {
-			id = find(cb, v);
-			if (id != null) {
-				StringBuilder stringBuilder = new StringBuilder("DEFAULT_VERB");
-				stringBuilder.append(SEPARATION_SYMBOL).append(id);
-
-				return stringBuilder.toString();
-			}
-		}
-
-		return null;
+		return Integer.toString(register(cb));
 	}
 
 	/**
@@ -157,6 +149,18 @@ public class ActionCallbackSerialization {
 	 * @param id
 	 */
 	public static ActionCallback find(String id) {
+		if (id == null)
+			return null;
+
+		if (id.indexOf(SEPARATION_SYMBOL) == -1) {
+			try {
+				return callbacks.get(Integer.parseInt(id));
+			} catch (NumberFormatException e) {
+				EngineLogger.error("Bad ActionCallback id: " + id);
+				return null;
+			}
+		}
+
 		Scene s = World.getInstance().getCurrentScene();
 
 		String[] split = id.split(SEPARATION_SYMBOL);
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.BaseJsonReader;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonValue.ValueType;
+import com.badlogic.gdx.utils.StreamUtils;
+
+/**
+ * Reads the binary Json format written by {@link BinaryJsonWriter}.
+ * 
+ * @author rgarcia
+ */
+public class BinaryJsonReader implements BaseJsonReader {
+	private final ArrayList<String> stringTable = new ArrayList<String>();
+	private DataInputStream in;
+
+	/**
+	 * @return true if the file starts with the binary format magic bytes.
+	 */
+	public static boolean isBinary(FileHandle file) {
+		InputStream is = null;
+
+		try {
+			is = file.read();
+
+			for (byte b : BinaryJsonWriter.MAGIC) {
+				if (is.read() != b)
+					return false;
+			}
+
+			return true;
+		} catch (Exception e) {
+			return false;
+		} finally {
+			StreamUtils.closeQuietly(is);
+		}
+	}
+
+	@Override
+	public JsonValue parse(FileHandle file) {
+		return parse(file.read());
+	}
+
+	@Override
+	public JsonValue parse(InputStream input) {
+		stringTable.clear();
+		in = new DataInputStream(new BufferedInputStream(input, 8192));
+
+		try {
+			for (byte b : BinaryJsonWriter.MAGIC) {
+				if (in.readByte() != b)
+					throw new GdxRuntimeException("Not a binary json file.");
+			}
+
+			int version = in.readUnsignedByte();
+
+			if (version > BinaryJsonWriter.VERSION)
+				throw new GdxRuntimeException("Unsupported binary json version: " + version);
+
+			return readValue(in.readUnsignedByte());
+		} catch (IOException e) {
+			throw new GdxRuntimeException("Error reading binary json.", e);
+		} finally {
+			StreamUtils.closeQuietly(in);
+			in = null;
+		}
+	}
+
+	private JsonValue readValue(int token) throws IOException {
+		switch (token) {
+		case BinaryJsonWriter.OBJECT:
+			return readChildren(new JsonValue(ValueType.object), true);
+		case BinaryJsonWriter.ARRAY:
+			return readChildren(new JsonValue(ValueType.array), false);
+		case BinaryJsonWriter.NULL:
+			return new JsonValue(ValueType.nullValue);
+		case BinaryJsonWriter.TRUE:
+			return new JsonValue(true);
+		case BinaryJsonWriter.FALSE:
+			return new JsonValue(false);
+		case BinaryJsonWriter.LONG:
+			long v = readVarLong();
+			return new JsonValue((v >>> 1) ^ -(v & 1));
+		case BinaryJsonWriter.FLOAT:
+			return new JsonValue(in.readFloat());
+		case BinaryJsonWriter.DOUBLE:
+			return new JsonValue(in.readDouble());
+		case BinaryJsonWriter.STRING:
+			return new JsonValue(readString());
+		default:
+			throw new GdxRuntimeException("Bad binary json token: " + token);
+		}
+	}
+
+	private JsonValue readChildren(JsonValue parent, boolean named) throws IOException {
+		JsonValue last = null;
+
+		while (true) {
+			int token = in.readUnsignedByte();
+
+			if (token == BinaryJsonWriter.END)
+				return parent;
+
+			String name = null;
+
+			if (token == BinaryJsonWriter.NAME) {
+				name = readString();
+				token = in.readUnsignedByte();
+			} else if (named) {
+				throw new GdxRuntimeException("Object value without name.");
+			}
+
+			JsonValue child = readValue(token);
+			child.setName(name);
+
+			if (last == null) {
+				parent.child = child;
+			} else {
+				last.next = child;
+				child.prev = last;
+			}
+
+			last = child;
+			parent.size++;
+		}
+	}
+
+	private String readString() throws IOException {
+		int idx = (int) readVarLong();
+
+		if (idx != 0)
+			return stringTable.get(idx - 1);
+
+		byte[] bytes = new byte[(int) readVarLong()];
+		in.readFully(bytes);
+
+		String s = new String(bytes, "UTF-8");
+		stringTable.add(s);
+
+		return s;
+	}
+
+	private long readVarLong() throws IOException {
+		long result = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			result |= (long) (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0)
+				return result;
+		}
+
+		throw new GdxRuntimeException("Bad varint in binary json.");
+	}
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.util;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.HashMap;
+
+import com.badlogic.gdx.utils.JsonWriter;
+
+/**
+ * JsonWriter that streams a compact binary encoding of the Json output.
+ * 
+ * Names and strings are written once and then referenced by their index in
+ * a string table, so the repeated actor, verb and scene ids only take a few
+ * bytes. The stream can be read with {@link BinaryJsonReader}.
+ * 
+ * Format: the MAGIC bytes, the VERSION byte and the tokens. Strings are
+ * written as a varint index, 0 means a new string follows as a varint length
+ * and its UTF-8 bytes.
+ * 
+ * @author rgarcia
+ */
+public class BinaryJsonWriter extends JsonWriter {
+	public static final byte[] MAGIC = { 'B', 'L', 'D', 'J' };
+	public static final int VERSION = 1;
+
+	static final int OBJECT = 1;
+	static final int ARRAY = 2;
+	static final int END = 3;
+	static final int NAME = 4;
+	static final int NULL = 5;
+	static final int TRUE = 6;
+	static final int FALSE = 7;
+	static final int LONG = 8;
+	static final int FLOAT = 9;
+	static final int DOUBLE = 10;
+	static final int STRING = 11;
+
+	private final DataOutputStream out;
+	private final HashMap<String, Integer> stringTable = new HashMap<String, Integer>();
+
+	public BinaryJsonWriter(OutputStream out) throws IOException {
+		super(new StringWriter(0));
+
+		this.out = new DataOutputStream(out);
+		this.out.write(MAGIC);
+		this.out.writeByte(VERSION);
+	}
+
+	@Override
+	public JsonWriter name(String name) throws IOException {
+		out.writeByte(NAME);
+		writeString(name);
+		return this;
+	}
+
+	@Override
+	public JsonWriter object() throws IOException {
+		out.writeByte(OBJECT);
+		return this;
+	}
+
+	@Override
+	public JsonWriter array() throws IOException {
+		out.writeByte(ARRAY);
+		return this;
+	}
+
+	@Override
+	public JsonWriter object(String name) throws IOException {
+		return name(name).object();
+	}
+
+	@Override
+	public JsonWriter array(String name) throws IOException {
+		return name(name).array();
+	}
+
+	@Override
+	public JsonWriter set(String name, Object value) throws IOException {
+		return name(name).value(value);
+	}
+
+	@Override
+	public JsonWriter value(Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof Boolean) {
+			out.writeByte((Boolean) value ? TRUE : FALSE);
+		} else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			out.writeByte(LONG);
+			long v = ((Number) value).longValue();
+			writeVarLong((v << 1) ^ (v >> 63));
+		} else {
+			out.writeByte(STRING);
+			writeString(value.toString());
+		}
+
+		return this;
+	}
+
+	@Override
+	public JsonWriter json(String json) throws IOException {
+		throw new IOException("Raw json values are not supported in binary format.");
+	}
+
+	@Override
+	public JsonWriter pop() throws IOException {
+		out.writeByte(END);
+		return this;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		throw new IOException("Text can not be written in binary format.");
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void writeString(String s) throws IOException {
+		Integer idx = stringTable.get(s);
+
+		if (idx != null) {
+			writeVarLong(idx);
+			return;
+		}
+
+		stringTable.put(s, stringTable.size() + 1);
+
+		byte[] bytes = s.getBytes("UTF-8");
+
+		writeVarLong(0);
+		writeVarLong(bytes.length);
+		out.write(bytes);
+	}
+
+	private void writeVarLong(long v) throws IOException {
+		while ((v & ~0x7FL) != 0) {
+			out.writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+
+		out.writeByte((int) v);
+	}
+}
@@ -37,6 +37,20 @@ public class Config {
 	public static final String HELP_SCREEN_CLASS_PROP = "help_screen";
 	public static final String CREDIT_SCREEN_CLASS_PROP = "credit_screen";
 	public static final String INIT_SCREEN_CLASS_PROP = "init_screen";
+	public static final String LOADING_TIME_SLICE_PROP = "loading_time_slice";
+	public static final String PREFETCH_MEMORY_BUDGET_PROP = "prefetch_memory_budget";
+	public static final String SCENE_CACHE_SIZE_PROP = "scene_cache_size";
+	public static final String SCENE_CACHE_MEMORY_BUDGET_PROP = "scene_cache_memory_budget";
+	public static final String PATH_SMOOTHING_PROP = "path_smoothing";
+	public static final String BINARY_SAVEGAME_PROP = "binary_savegame";
+	public static final String AUTOSAVE_PROP = "autosave";
+	public static final String LAZY_SCENES_PROP = "lazy_scenes";
+	public static final String PROFILER_PROP = "profiler";
+	public static final String TEXTURE_BATCHING_PROP = "texture_batching";
+	public static final String BAKED_3D_PROP = "baked_3d";
+	public static final String RENDER_TARGETS_3D_PROP = "render_targets_3d";
+	public static final String SHADOW_CACHE_PROP = "shadow_cache";
+	public static final String SHADOW_CACHE_BUDGET_PROP = "shadow_cache_budget";
 	
 	public static final String PROPERTIES_FILENAME = "BladeEngine.properties";
 
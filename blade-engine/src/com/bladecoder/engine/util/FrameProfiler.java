@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright 2014 Rafael Garcia Moreno.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.bladecoder.engine.util;
+
+import java.io.Writer;
+import java.util.Arrays;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.utils.StreamUtils;
+
+/**
+ * Measures the time spent by every engine subsystem in each frame. Keeps the
+ * last frames to calculate the rolling min/avg/p99 and to draw a graph in the
+ * debug overlay.
+ * 
+ * Every section is measured with begin()/end() pairs. When the profiler is
+ * disabled the calls only check a boolean.
+ * 
+ * @author rgarcia
+ */
+public class FrameProfiler {
+	public static final int SCENE_UPDATE = 0;
+	public static final int TEXT_MANAGER = 1;
+	public static final int TIMERS = 2;
+	public static final int TRANSITION = 3;
+	public static final int CALLBACK_QUEUE = 4;
+	public static final int WORLD_DRAW = 5;
+	public static final int STAGE_DRAW = 6;
+	public static final int FRAME = 7;
+
+	private static final int NUM_SECTIONS = 8;
+
+	private static final String[] NAMES = { "Scene update", "Text manager", "Timers", "Transition",
+			"Callback queue", "World draw", "Stage draw", "Frame" };
+
+	private static final Color[] COLORS = { Color.GREEN, Color.CYAN, Color.BLUE, Color.MAGENTA, Color.ORANGE,
+			Color.YELLOW, Color.PURPLE, Color.GRAY };
+
+	/** Number of frames kept */
+	private static final int HISTORY = 300;
+
+	/** Frame budget in ns. 60fps */
+	private static final long BUDGET = 16666667;
+
+	private static boolean enabled = false;
+
+	private static final long[] startTime = new long[NUM_SECTIONS];
+	private static final long[] frameTime = new long[NUM_SECTIONS];
+	private static int frameRenderCalls = 0;
+
+	/** Ring buffers with the time in ns of every section in the last frames */
+	private static final long[][] history = new long[NUM_SECTIONS][HISTORY];
+	private static final int[] renderCallsHistory = new int[HISTORY];
+	private static int pos = 0;
+	private static int numFrames = 0;
+
+	private static final long[] sortTmp = new long[HISTORY];
+	private static final StringBuilder sb = new StringBuilder();
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean v) {
+		enabled = v;
+		clear();
+	}
+
+	public static void clear() {
+		Arrays.fill(frameTime, 0);
+		frameRenderCalls = 0;
+		pos = 0;
+		numFrames = 0;
+	}
+
+	public static void begin(int section) {
+		if (enabled)
+			startTime[section] = System.nanoTime();
+	}
+
+	public static void end(int section) {
+		if (enabled)
+			frameTime[section] += System.nanoTime() - startTime[section];
+	}
+
+	/**
+	 * Adds the render calls of a SpriteBatch to the current frame. Must be
+	 * called after the batch end().
+	 */
+	public static void addRenderCalls(int renderCalls) {
+		if (enabled)
+			frameRenderCalls += renderCalls;
+	}
+
+	/**
+	 * Stores the current frame times in the history.
+	 */
+	public static void endFrame() {
+		if (!enabled)
+			return;
+
+		for (int i = 0; i < NUM_SECTIONS; i++) {
+			history[i][pos] = frameTime[i];
+			frameTime[i] = 0;
+		}
+
+		renderCallsHistory[pos] = frameRenderCalls;
+		frameRenderCalls = 0;
+
+		pos = (pos + 1) % HISTORY;
+
+		if (numFrames < HISTORY)
+			numFrames++;
+	}
+
+	public static long getMin(int section) {
+		long min = Long.MAX_VALUE;
+
+		for (int i = 0; i < numFrames; i++)
+			min = Math.min(min, history[section][i]);
+
+		return numFrames == 0 ? 0 : min;
+	}
+
+	public static long getAvg(int section) {
+		long total = 0;
+
+		for (int i = 0; i < numFrames; i++)
+			total += history[section][i];
+
+		return numFrames == 0 ? 0 : total / numFrames;
+	}
+
+	public static long getP99(int section) {
+		if (numFrames == 0)
+			return 0;
+
+		System.arraycopy(history[section], 0, sortTmp, 0, numFrames);
+		Arrays.sort(sortTmp, 0, numFrames);
+
+		return sortTmp[(int) Math.ceil(numFrames * 0.99) - 1];
+	}
+
+	/**
+	 * Draws the stats and a graph with the last frames. Every frame is drawn
+	 * as a stacked bar with the time of every section. The white line is the
+	 * 60fps budget.
+	 */
+	public static void draw(Batch batch, BitmapFont font, float x, float y, float height) {
+		if (!enabled)
+			return;
+
+		float barWidth = 1;
+		float scale = height / 2 / BUDGET; // budget at the middle
+		float width = HISTORY * barWidth;
+
+		RectangleRenderer.draw(batch, x, y, width, height, Color.BLACK);
+
+		for (int f = 0; f < numFrames; f++) {
+			// oldest frame first
+			int idx = (pos - numFrames + f + HISTORY) % HISTORY;
+			float by = y;
+
+			for (int s = 0; s < FRAME; s++) {
+				float h = Math.min(history[s][idx] * scale, y + height - by);
+
+				if (h > 0) {
+					RectangleRenderer.draw(batch, x + f * barWidth, by, barWidth, h, COLORS[s]);
+					by += h;
+				}
+			}
+
+			// time not measured by the sections
+			long other = history[FRAME][idx];
+
+			for (int s = 0; s < FRAME; s++)
+				other -= history[s][idx];
+
+			float h = Math.min(other * scale, y + height - by);
+
+			if (h > 0)
+				RectangleRenderer.draw(batch, x + f * barWidth, by, barWidth, h, COLORS[FRAME]);
+		}
+
+		RectangleRenderer.draw(batch, x, y + height / 2, width, 1, Color.WHITE);
+
+		float ty = y + height + font.getLineHeight() * (NUM_SECTIONS + 2);
+		RectangleRenderer.draw(batch, x, y + height, width * 1.5f, ty - y - height, Color.BLACK);
+
+		sb.setLength(0);
+		sb.append("min/avg/p99 (ms)  Render calls: ").append(renderCallsHistory[(pos - 1 + HISTORY) % HISTORY]);
+		font.setColor(Color.WHITE);
+		font.draw(batch, sb, x, ty);
+
+		for (int s = 0; s < NUM_SECTIONS; s++) {
+			ty -= font.getLineHeight();
+
+			sb.setLength(0);
+			sb.append(NAMES[s]).append(": ");
+			appendMs(sb, getMin(s));
+			sb.append(" / ");
+			appendMs(sb, getAvg(s));
+			sb.append(" / ");
+			appendMs(sb, getP99(s));
+
+			font.setColor(COLORS[s]);
+			font.draw(batch, sb, x, ty);
+		}
+
+		font.setColor(Color.WHITE);
+	}
+
+	private static void appendMs(StringBuilder sb, long ns) {
+		long us = ns / 1000;
+		sb.append(us / 1000).append('.');
+
+		long dec = (us % 1000) / 10;
+
+		if (dec < 10)
+			sb.append('0');
+
+		sb.append(dec);
+	}
+
+	/**
+	 * Writes the frames in the history to a CSV file with the time in ms of
+	 * every section.
+	 */
+	public static void exportCSV(FileHandle file) {
+		Writer w = null;
+
+		try {
+			w = file.writer(false, "UTF-8");
+
+			for (int s = 0; s < NUM_SECTIONS; s++)
+				w.write(NAMES[s] + ",");
+
+			w.write("Render calls\n");
+
+			for (int f = 0; f < numFrames; f++) {
+				int idx = (pos - numFrames + f + HISTORY) % HISTORY;
+
+				for (int s = 0; s < NUM_SECTIONS; s++)
+					w.write(Float.toString(history[s][idx] / 1000000f) + ",");
+
+				w.write(Integer.toString(renderCallsHistory[idx]) + "\n");
+			}
+
+			EngineLogger.debug("Profiler data exported to: " + file.path());
+		} catch (Exception e) {
+			EngineLogger.error("Error exporting profiler data", e);
+		} finally {
+			StreamUtils.closeQuietly(w);
+		}
+	}
+}